@@ -0,0 +1,83 @@
+package sudoku.api;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/*
+BlockingStream turns a producer which blocks, such as a solver search handing out solutions as it
+finds them, into a Flowable for a streaming response. The producer runs on the given executor rather
+than an event loop thread. Each emit waits until the client has asked for another item, so nothing
+piles up in memory when the client reads slowly, and once the client has gone away emit returns
+false and isCancelled is true so the producer can stop.
+ */
+class BlockingStream<T> {
+
+    interface Producer<T> {
+        void produce(BlockingStream<T> stream);
+    }
+
+    // this many items or more requested ahead is treated as no limit
+    static final int MAX_DEMAND = 1 << 20;
+
+    private final Semaphore demand = new Semaphore(0);
+    private volatile boolean unbounded;
+    private volatile boolean cancelled;
+    private FlowableEmitter<T> emitter;
+
+    private BlockingStream() {
+    }
+
+    static <T> Flowable<T> create(Executor executor, Producer<T> producer) {
+        BlockingStream<T> stream = new BlockingStream<>();
+        Flowable<T> items = Flowable.create(emitter -> {
+            stream.emitter = emitter;
+            executor.execute(() -> {
+                try {
+                    producer.produce(stream);
+                    emitter.onComplete();
+                } catch (RuntimeException ex) {
+                    emitter.onError(ex);
+                }
+            });
+        }, BackpressureStrategy.BUFFER);
+        return items.doOnRequest(stream::request).doOnCancel(stream::cancel);
+    }
+
+    boolean emit(T item) {
+        if (!unbounded) {
+            demand.acquireUninterruptibly();
+        }
+        if (cancelled) {
+            return false;
+        }
+        emitter.onNext(item);
+        return true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void request(long n) {
+        if (unbounded) {
+            return;
+        }
+        if (n >= MAX_DEMAND - demand.availablePermits()) {
+            unbounded = true;
+            // wake a producer waiting in emit, which won't wait again
+            demand.release();
+        } else {
+            demand.release((int) n);
+        }
+    }
+
+    private void cancel() {
+        cancelled = true;
+        // wake a producer waiting in emit
+        demand.release();
+    }
+}
@@ -0,0 +1,39 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/*
+Configuration for how long a request may spend solving or generating, e.g.
+
+sudoku:
+  deadline:
+    solve: 10s
+    generate: 10s
+
+which should be less than the Lambda timeout in sam.yaml, so a request which runs out of time still
+gets a response. Streamed responses have no deadline, they stop when the client disconnects.
+*/
+@ConfigurationProperties("sudoku.deadline")
+public class DeadlineConfiguration {
+
+    private Duration solve = Duration.ofSeconds(10);
+    private Duration generate = Duration.ofSeconds(10);
+
+    public Duration getSolve() {
+        return solve;
+    }
+
+    public void setSolve(Duration solve) {
+        this.solve = solve;
+    }
+
+    public Duration getGenerate() {
+        return generate;
+    }
+
+    public void setGenerate(Duration generate) {
+        this.generate = generate;
+    }
+}
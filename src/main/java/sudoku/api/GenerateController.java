@@ -3,39 +3,189 @@ package sudoku.api;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Error;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.hateoas.JsonError;
 import io.micronaut.http.hateoas.Link;
+import io.micronaut.scheduling.TaskExecutors;
+import io.reactivex.Flowable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sudoku.logic.Deadline;
+import sudoku.logic.DeadlineExceededException;
 import sudoku.logic.Difficulty;
 import sudoku.logic.Generator;
 import sudoku.logic.Grid;
+import sudoku.logic.PackedPuzzle;
 import sudoku.logic.Puzzle;
+import sudoku.logic.PuzzleBank;
+import sudoku.logic.PuzzlePool;
 
+import javax.annotation.Nullable;
+import javax.inject.Named;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 @Controller("/generate")
 public class GenerateController {
 
     private Logger log = LoggerFactory.getLogger(GenerateController.class);
 
-    final int MIN_DIMENSION = 4;
-    final int MAX_DIMENSION = 10;
+    static final String FRESH = "fresh";
+    static final String ISOMORPH = "isomorph";
+    static final String BANK = "bank";
 
-    @Get("/{boxHeight}/{boxWidth}/{difficulty}")
-    public PuzzleResponse generate(@Min(2) @Max(5) int boxHeight,
+    static final String ARRAYS = "arrays";
+    static final String PACKED = "packed";
+
+    static final int MAX_BULK_COUNT = 10000;
+
+    private final PuzzlePool puzzlePool;
+    private final PuzzleBank puzzleBank;
+    private final ExecutorService ioExecutor;
+    private final DeadlineConfiguration deadlineConfiguration;
+    private final RequestDeadlines requestDeadlines;
+
+    public GenerateController(PuzzlePool puzzlePool, PuzzleBank puzzleBank,
+                              @Named(TaskExecutors.IO) ExecutorService ioExecutor,
+                              DeadlineConfiguration deadlineConfiguration,
+                              RequestDeadlines requestDeadlines) {
+        this.puzzlePool = puzzlePool;
+        this.puzzleBank = puzzleBank;
+        this.ioExecutor = ioExecutor;
+        this.deadlineConfiguration = deadlineConfiguration;
+        this.requestDeadlines = requestDeadlines;
+    }
+
+    @Get("/{boxHeight}/{boxWidth}/{difficulty}{?mode,seed,format}")
+    public PuzzleResponse generate(HttpRequest<?> request,
+                                   @Min(2) @Max(5) int boxHeight,
                                    @Min(2) @Max(5) int boxWidth,
-                                   Difficulty difficulty) throws IllegalArgumentException {
+                                   Difficulty difficulty,
+                                   @Nullable String mode,
+                                   @Nullable Long seed,
+                                   @Nullable String format) throws IllegalArgumentException {
 
         log.trace("Received request generate");
 
-        if (boxHeight * boxWidth < MIN_DIMENSION || boxHeight * boxWidth > MAX_DIMENSION) {
-            throw new IllegalArgumentException("The boxHeight multiplied by boxWidth must be at " +
-                    "least " + MIN_DIMENSION + " and no greater than " + MAX_DIMENSION + ".");
+        checkGenerateRequest(boxHeight, boxWidth, difficulty, mode, format);
+
+        // generating stops once the deadline expires or the client has gone away
+        return requestDeadlines.withDeadline(request, deadlineConfiguration.getGenerate(),
+                deadline -> generate(boxHeight, boxWidth, difficulty, mode, seed, format, deadline));
+    }
+
+    private PuzzleResponse generate(int boxHeight, int boxWidth, Difficulty difficulty, String mode, Long seed,
+                                    String format, Deadline deadline) {
+        Generator generator = new Generator(new Grid(boxHeight, boxWidth));
+        Puzzle puzzle = null;
+        if (BANK.equals(mode)) {
+            // a random puzzle of the mapped bank, if it has any of this grid size and difficulty,
+            // otherwise one generated as if fresh
+            puzzle = puzzleBank.randomPuzzle(boxHeight, boxWidth, difficulty,
+                    seed == null ? new SplittableRandom() : new SplittableRandom(seed));
+        }
+        if (puzzle != null) {
+            log.trace("Taken from the puzzle bank");
+        } else if (seed != null) {
+            // the same seed always gives the same puzzle, so it is generated here on this thread
+            // alone rather than taken from the pool or raced across cores, and if it runs out of
+            // time there is no other puzzle to give instead
+            SplittableRandom random = new SplittableRandom(seed);
+            puzzle = ISOMORPH.equals(mode) ? generator.generateIsomorph(difficulty, random, deadline)
+                    : generator.generatePuzzle(difficulty, random, deadline);
+        } else if (ISOMORPH.equals(mode)) {
+            // a random transform of a banked puzzle of this difficulty, made in microseconds
+            puzzle = generator.generateIsomorph(difficulty, new SplittableRandom(), deadline);
+        } else {
+            // take a ready puzzle from the pool, only generating one here if it has none, with an
+            // attempt on each core and the first to match the difficulty winning
+            puzzle = puzzlePool.take(boxHeight, boxWidth, difficulty);
+            if (puzzle == null) {
+                try {
+                    puzzle = generator.generatePuzzle(difficulty, ForkJoinPool.commonPool(),
+                            Runtime.getRuntime().availableProcessors(), deadline);
+                } catch (DeadlineExceededException ex) {
+                    // an unlucky run, fall back on an isomorph of a banked puzzle, if there is one
+                    log.debug("Generating fell back on an isomorph: " + ex.getMessage());
+                    puzzle = generator.generateIsomorph(difficulty, new SplittableRandom(), deadline);
+                }
+            }
+        }
+        return puzzleResponse(puzzle, format);
+    }
+
+    @Get(value = "/bulk/{boxHeight}/{boxWidth}/{difficulty}{?count,mode,format}",
+            produces = MediaType.APPLICATION_JSON_STREAM)
+    public Flowable<PuzzleResponse> generateBulk(@Min(2) @Max(5) int boxHeight,
+                                                 @Min(2) @Max(5) int boxWidth,
+                                                 Difficulty difficulty,
+                                                 @Nullable @Min(1) @Max(MAX_BULK_COUNT) Integer count,
+                                                 @Nullable String mode,
+                                                 @Nullable String format) throws IllegalArgumentException {
+
+        log.trace("Received request generate bulk");
+
+        // Count puzzles, one JSON object per line as each is generated. They are generated on every
+        // core at once, bypassing the pool, but no faster than the client reads them, and
+        // generation stops when the client disconnects.
+        if (count == null) {
+            throw new IllegalArgumentException("The count of puzzles to generate must be given.");
+        }
+        checkGenerateRequest(boxHeight, boxWidth, difficulty, mode, format);
+        Generator generator = new Generator(new Grid(boxHeight, boxWidth));
+
+        boolean fromBank = BANK.equals(mode) && puzzleBank.size(boxHeight, boxWidth, difficulty) > 0;
+        return BlockingStream.create(ioExecutor, stream -> {
+            // no two puzzles in the stream are duplicates or isomorphs of each other, so it may end
+            // early once the bank, or the grid size and difficulty, has run out of different ones
+            Predicate<Puzzle> emit = puzzle -> stream.emit(puzzleResponse(puzzle, format));
+            // each banked puzzle or isomorph takes microseconds, so there is nothing to gain from
+            // more threads for those
+            if (fromBank) {
+                puzzleBank.randomPuzzles(boxHeight, boxWidth, difficulty, count, new SplittableRandom(), emit);
+            } else if (ISOMORPH.equals(mode)) {
+                generator.generateIsomorphs(difficulty, count, new SplittableRandom(), stream::isCancelled, emit);
+            } else {
+                generator.generatePuzzles(difficulty, count, ForkJoinPool.commonPool(),
+                        Runtime.getRuntime().availableProcessors(), emit);
+            }
+        });
+    }
+
+    @Get("/pool")
+    public List<PuzzlePool.FillLevel> poolFillLevels() {
+        // how many puzzles are ready for each grid size and difficulty requested so far
+        return puzzlePool.getFillLevels();
+    }
+
+    @Error
+    public HttpResponse<JsonError> invalidRequest(HttpRequest request, IllegalArgumentException ex) {
+        JsonError error = new JsonError("Bad request: " + ex.getMessage())
+                .link(Link.SELF, Link.of(request.getUri()));
+        return HttpResponse.<JsonError>status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @Error
+    public HttpResponse<JsonError> timedOut(HttpRequest request, DeadlineExceededException ex) {
+        JsonError error = new JsonError("Timed out: " + ex.getMessage())
+                .link(Link.SELF, Link.of(request.getUri()));
+        return HttpResponse.<JsonError>status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    private static void checkGenerateRequest(int boxHeight, int boxWidth, Difficulty difficulty, String mode,
+                                             String format) throws IllegalArgumentException {
+
+        if (!Grid.isSupported(boxHeight, boxWidth)) {
+            throw new IllegalArgumentException("The boxHeight x boxWidth must be one of " +
+                    Grid.supportedBoxSizesToString() + ".");
         }
 
         String err = "Unable to generate puzzle for boxHeight " + boxHeight + ", boxWidth "
@@ -45,13 +195,25 @@ public class GenerateController {
         } else if (boxHeight * boxWidth == 6 && (difficulty != Difficulty.EASY && difficulty != Difficulty.MEDIUM
                 && difficulty != Difficulty.TRICKY)) {
             throw new IllegalArgumentException(err);
+        } else if (boxHeight * boxWidth > 10 && difficulty != Difficulty.MEDIUM) {
+            // 12x12 and larger puzzles are only made as hard as propagation alone can solve
+            throw new IllegalArgumentException(err);
         } else if (difficulty != Difficulty.EASY && difficulty != Difficulty.MEDIUM && difficulty != Difficulty.TRICKY
                 && difficulty != Difficulty.FIENDISH) {
             throw new IllegalArgumentException(err);
         }
 
-        Puzzle puzzle = new Generator(new Grid(boxHeight, boxWidth)).generatePuzzle(difficulty);
+        if (mode != null && !mode.equals(FRESH) && !mode.equals(ISOMORPH) && !mode.equals(BANK)) {
+            throw new IllegalArgumentException("The mode must be one of " + FRESH + ", " + ISOMORPH + " or "
+                    + BANK + ".");
+        }
 
+        if (format != null && !format.equals(ARRAYS) && !format.equals(PACKED)) {
+            throw new IllegalArgumentException("The format must be one of " + ARRAYS + " or " + PACKED + ".");
+        }
+    }
+
+    private static PuzzleResponse puzzleResponse(Puzzle puzzle, String format) {
         NumberOfSolutions numberOfSolutions;
         if (puzzle.getNumSolutions() == 1) {
             numberOfSolutions = NumberOfSolutions.SINGLE_SOLUTION;
@@ -61,16 +223,14 @@ public class GenerateController {
             numberOfSolutions = NumberOfSolutions.NO_SOLUTIONS;
         }
 
-        return new PuzzleResponse().setPuzzleNums(puzzle.getPuzzleNums())
-                .setSolution(puzzle.getSolution())
-                .setNumberOfSolutions(numberOfSolutions)
+        PuzzleResponse response = new PuzzleResponse().setNumberOfSolutions(numberOfSolutions)
                 .setDifficulty(puzzle.getDifficulty());
+        if (PACKED.equals(format)) {
+            // the packed bytes, which come out in JSON as base64
+            return response.setPackedPuzzleNums(PackedPuzzle.packCells(puzzle.getPuzzleNums(), puzzle.getGrid()))
+                    .setPackedSolution(PackedPuzzle.packCells(puzzle.getSolution(), puzzle.getGrid()));
+        }
+        return response.setPuzzleNums(puzzle.getPuzzleNums())
+                .setSolution(puzzle.getSolution());
     }
-
-    @Error
-    public HttpResponse<JsonError> invalidRequest(HttpRequest request, IllegalArgumentException ex) {
-        JsonError error = new JsonError("Bad request: " + ex.getMessage())
-                .link(Link.SELF, Link.of(request.getUri()));
-        return HttpResponse.<JsonError>status(HttpStatus.BAD_REQUEST).body(error);
-    }
-}
\ No newline at end of file
+}
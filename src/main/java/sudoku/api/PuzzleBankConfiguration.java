@@ -0,0 +1,27 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/*
+Configuration for the bank of puzzles generated offline, e.g.
+
+sudoku:
+  bank:
+    path: /var/lib/sudoku/puzzles.bank
+
+where the file was written by PuzzleBank.write. Without a path the bank is empty, and requests for
+puzzles from it are generated instead.
+*/
+@ConfigurationProperties("sudoku.bank")
+public class PuzzleBankConfiguration {
+
+    private String path;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
@@ -0,0 +1,23 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.Factory;
+import sudoku.logic.PuzzleBank;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/*
+Maps the PuzzleBank file in at startup, or makes an empty bank if there is no file configured.
+*/
+@Factory
+public class PuzzleBankFactory {
+
+    @Singleton
+    public PuzzleBank puzzleBank(PuzzleBankConfiguration configuration) throws IOException {
+        if (configuration.getPath() == null) {
+            return PuzzleBank.empty();
+        }
+        return PuzzleBank.open(Paths.get(configuration.getPath()));
+    }
+}
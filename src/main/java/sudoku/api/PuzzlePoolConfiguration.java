@@ -0,0 +1,59 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/*
+Configuration for the pool of ready generated puzzles, e.g.
+
+sudoku:
+  pool:
+    capacity: 100
+    min-high-watermark: 2
+    max-high-watermark: 20
+    threads: 2
+
+where capacity is shared out between the grid sizes and difficulties by their share of recent
+requests, each getting between the minimum and maximum high watermark. A max-high-watermark of 0
+turns the pool off. The puzzles are generated on the puzzle-pool executor's threads, by default one
+for every two cores, leaving the rest for requests.
+*/
+@ConfigurationProperties("sudoku.pool")
+public class PuzzlePoolConfiguration {
+
+    private int capacity = 100;
+    private int minHighWatermark = 2;
+    private int maxHighWatermark = 20;
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMinHighWatermark() {
+        return minHighWatermark;
+    }
+
+    public void setMinHighWatermark(int minHighWatermark) {
+        this.minHighWatermark = minHighWatermark;
+    }
+
+    public int getMaxHighWatermark() {
+        return maxHighWatermark;
+    }
+
+    public void setMaxHighWatermark(int maxHighWatermark) {
+        this.maxHighWatermark = maxHighWatermark;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
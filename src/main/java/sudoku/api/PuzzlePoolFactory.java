@@ -0,0 +1,42 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import sudoku.logic.PuzzlePool;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Makes the single PuzzlePool from its configuration, refilling on the puzzle-pool executor, and stops
+it refilling when the application shuts down. The executor has the configured number of threads,
+which are daemons so a refill still running never keeps the application from exiting.
+*/
+@Factory
+public class PuzzlePoolFactory {
+
+    static final String EXECUTOR_NAME = "puzzle-pool";
+
+    @Singleton
+    @Named(EXECUTOR_NAME)
+    @Bean(preDestroy = "shutdownNow")
+    public ExecutorService puzzlePoolExecutor(PuzzlePoolConfiguration configuration) {
+        AtomicInteger numThreads = new AtomicInteger();
+        return Executors.newFixedThreadPool(configuration.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, EXECUTOR_NAME + "-" + numThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Singleton
+    @Bean(preDestroy = "close")
+    public PuzzlePool puzzlePool(PuzzlePoolConfiguration configuration,
+                                 @Named(EXECUTOR_NAME) ExecutorService executor) {
+        return new PuzzlePool(executor, configuration.getCapacity(), configuration.getMinHighWatermark(),
+                configuration.getMaxHighWatermark());
+    }
+}
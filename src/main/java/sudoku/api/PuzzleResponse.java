@@ -2,10 +2,15 @@ package sudoku.api;
 
 import sudoku.logic.Difficulty;
 
+import java.util.List;
+
 public class PuzzleResponse {
 
     private int[] puzzleNums;
     private int[] solution;
+    private byte[] packedPuzzleNums;
+    private byte[] packedSolution;
+    private List<int[]> solutions;
     private NumberOfSolutions numberOfSolutions;
     private Difficulty difficulty;
 
@@ -29,6 +34,33 @@ public class PuzzleResponse {
         return this;
     }
 
+    public byte[] getPackedPuzzleNums() {
+        return packedPuzzleNums;
+    }
+
+    public PuzzleResponse setPackedPuzzleNums(byte[] packedPuzzleNums) {
+        this.packedPuzzleNums = packedPuzzleNums;
+        return this;
+    }
+
+    public byte[] getPackedSolution() {
+        return packedSolution;
+    }
+
+    public PuzzleResponse setPackedSolution(byte[] packedSolution) {
+        this.packedSolution = packedSolution;
+        return this;
+    }
+
+    public List<int[]> getSolutions() {
+        return solutions;
+    }
+
+    public PuzzleResponse setSolutions(List<int[]> solutions) {
+        this.solutions = solutions;
+        return this;
+    }
+
     public NumberOfSolutions getNumberOfSolutions() {
         return numberOfSolutions;
     }
@@ -0,0 +1,43 @@
+package sudoku.api;
+
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.context.event.HttpRequestTerminatedEvent;
+import sudoku.logic.Deadline;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/*
+RequestDeadlines gives a request which solves or generates a Deadline, and cancels it if the client
+goes away before the response is ready, so the work stops soon after rather than running on until
+the deadline expires. Micronaut doesn't cancel a non-streaming response when its connection closes,
+but it does publish an HttpRequestTerminatedEvent for the request, even while a blocking controller
+method is still running on the IO executor. Streamed responses are stopped by BlockingStream instead.
+*/
+@Singleton
+public class RequestDeadlines implements ApplicationEventListener<HttpRequestTerminatedEvent> {
+
+    private final Map<HttpRequest<?>, Deadline> deadlines = new ConcurrentHashMap<>();
+
+    <T> T withDeadline(HttpRequest<?> request, Duration timeout, Function<Deadline, T> work) {
+        Deadline deadline = Deadline.after(timeout);
+        deadlines.put(request, deadline);
+        try {
+            return work.apply(deadline);
+        } finally {
+            deadlines.remove(request);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(HttpRequestTerminatedEvent event) {
+        Deadline deadline = deadlines.remove(event.getSource());
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package sudoku.api;
+
+public class SolutionResponse {
+
+    private long solutionNumber;
+    private int[] solution;
+
+    public SolutionResponse() { }
+
+    public long getSolutionNumber() {
+        return solutionNumber;
+    }
+
+    public SolutionResponse setSolutionNumber(long solutionNumber) {
+        this.solutionNumber = solutionNumber;
+        return this;
+    }
+
+    public int[] getSolution() {
+        return solution;
+    }
+
+    public SolutionResponse setSolution(int[] solution) {
+        this.solution = solution;
+        return this;
+    }
+}
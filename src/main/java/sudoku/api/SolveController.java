@@ -3,37 +3,162 @@ package sudoku.api;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Error;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.hateoas.JsonError;
 import io.micronaut.http.hateoas.Link;
+import io.micronaut.scheduling.TaskExecutors;
+import io.reactivex.Flowable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sudoku.logic.Deadline;
+import sudoku.logic.DeadlineExceededException;
+import sudoku.logic.Difficulty;
 import sudoku.logic.Grid;
 import sudoku.logic.Puzzle;
+import sudoku.logic.SolutionListener;
+import sudoku.logic.SolverEngine;
+import sudoku.logic.SolverEngines;
 
+import javax.annotation.Nullable;
+import javax.inject.Named;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 @Controller("/solve")
 public class SolveController {
 
-    final int MIN_DIMENSION = 4;
-    final int MAX_DIMENSION = 10;
+    static final int MAX_SOLUTIONS_LIMIT = 1000;
 
     private Logger log = LoggerFactory.getLogger(GenerateController.class);
 
-    @Get("/{boxHeight}/{boxWidth}/{puzzleNums}")
-    public PuzzleResponse solve(@Min(2) @Max(5) int boxHeight,
+    private final ExecutorService ioExecutor;
+    private final DeadlineConfiguration deadlineConfiguration;
+    private final RequestDeadlines requestDeadlines;
+
+    public SolveController(@Named(TaskExecutors.IO) ExecutorService ioExecutor,
+                           DeadlineConfiguration deadlineConfiguration,
+                           RequestDeadlines requestDeadlines) {
+        this.ioExecutor = ioExecutor;
+        this.deadlineConfiguration = deadlineConfiguration;
+        this.requestDeadlines = requestDeadlines;
+    }
+
+    @Get("/{boxHeight}/{boxWidth}/{puzzleNums}{?algorithm,maxSolutions}")
+    public PuzzleResponse solve(HttpRequest<?> request,
+                                @Min(2) @Max(5) int boxHeight,
                                 @Min(2) @Max(5) int boxWidth,
-                                String puzzleNums) throws IllegalArgumentException {
+                                String puzzleNums,
+                                @Nullable String algorithm,
+                                @Nullable @Min(1) @Max(MAX_SOLUTIONS_LIMIT) Integer maxSolutions)
+            throws IllegalArgumentException {
+
+        // searching stops once the deadline expires, giving a timeout response rather than none, or
+        // once the client has gone away
+        return requestDeadlines.withDeadline(request, deadlineConfiguration.getSolve(),
+                deadline -> solve(boxHeight, boxWidth, puzzleNums, algorithm, maxSolutions, deadline));
+    }
+
+    private PuzzleResponse solve(int boxHeight, int boxWidth, String puzzleNums, String algorithm,
+                                 Integer maxSolutions, Deadline deadline) throws IllegalArgumentException {
+        Puzzle puzzle = parsePuzzle(boxHeight, boxWidth, puzzleNums, algorithm, deadline);
+        PuzzleResponse response = new PuzzleResponse().setPuzzleNums(puzzle.getPuzzleNums());
+
+        if (maxSolutions == null) {
+            return response.setSolution(puzzle.getSolution())
+                    .setNumberOfSolutions(numberOfSolutions(puzzle.getNumSolutions()))
+                    .setDifficulty(puzzle.getDifficulty());
+        }
+
+        // look for one more solution than asked for so that maxSolutions of 1 can still tell a
+        // single solution from many
+        List<int[]> solutions = new ArrayList<>();
+        long numSolutions = createEngine(puzzle.getGrid(), algorithm).solve(puzzle, maxSolutions + 1,
+                new SolutionListener() {
+                    @Override
+                    public boolean onSolution(int[] solution) {
+                        if (solutions.size() < maxSolutions) {
+                            solutions.add(solution);
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isStopped() {
+                        return deadline.isExpired();
+                    }
+                });
+        deadline.check();
+
+        // the search above already tells whether there is a single solution, and finds it, so only
+        // rating is left to do
+        Difficulty difficulty = numSolutions == 1 ? puzzle.withSolution(solutions.get(0)).getDifficulty()
+                : Difficulty.INVALID;
+        return response.setSolution(solutions.isEmpty() ? new int[puzzle.getGrid().getNumCells()] : solutions.get(0))
+                .setSolutions(solutions)
+                .setNumberOfSolutions(numberOfSolutions(numSolutions))
+                .setDifficulty(difficulty);
+    }
+
+    @Get(value = "/stream/{boxHeight}/{boxWidth}/{puzzleNums}{?algorithm,maxSolutions}",
+            produces = MediaType.APPLICATION_JSON_STREAM)
+    public Flowable<SolutionResponse> solveStream(@Min(2) @Max(5) int boxHeight,
+                                                  @Min(2) @Max(5) int boxWidth,
+                                                  String puzzleNums,
+                                                  @Nullable String algorithm,
+                                                  @Nullable @Min(1) Long maxSolutions)
+            throws IllegalArgumentException {
+
+        // Every solution, or the first maxSolutions, one JSON object per line as each is found. The
+        // search runs on the IO executor, waits while the client is not keeping up and stops when
+        // the client disconnects.
+        Puzzle puzzle = parsePuzzle(boxHeight, boxWidth, puzzleNums, algorithm, Deadline.none());
+        SolverEngine engine = createEngine(puzzle.getGrid(), algorithm);
+        long solutionLimit = maxSolutions == null ? Long.MAX_VALUE : maxSolutions;
+
+        return BlockingStream.create(ioExecutor, stream ->
+                engine.solve(puzzle, solutionLimit, new SolutionListener() {
+                    private long solutionNumber = 0;
+
+                    @Override
+                    public boolean onSolution(int[] solution) {
+                        solutionNumber++;
+                        return stream.emit(new SolutionResponse().setSolutionNumber(solutionNumber)
+                                .setSolution(solution));
+                    }
+
+                    @Override
+                    public boolean isStopped() {
+                        return stream.isCancelled();
+                    }
+                }));
+    }
+
+    @Error
+    public HttpResponse<JsonError> invalidRequest(HttpRequest request, IllegalArgumentException ex) {
+        JsonError error = new JsonError("Bad request: " + ex.getMessage())
+                .link(Link.SELF, Link.of(request.getUri()));
+        return HttpResponse.<JsonError>status(HttpStatus.BAD_REQUEST).body(error);
+    }
 
-        if (boxHeight * boxWidth < MIN_DIMENSION || boxHeight * boxWidth > MAX_DIMENSION) {
-            throw new IllegalArgumentException("The boxHeight multiplied by boxWidth must be at " +
-                    "least " + MIN_DIMENSION + " and no greater than " + MAX_DIMENSION + ".");
+    @Error
+    public HttpResponse<JsonError> timedOut(HttpRequest request, DeadlineExceededException ex) {
+        JsonError error = new JsonError("Timed out: " + ex.getMessage())
+                .link(Link.SELF, Link.of(request.getUri()));
+        return HttpResponse.<JsonError>status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    private Puzzle parsePuzzle(int boxHeight, int boxWidth, String puzzleNums, String algorithm, Deadline deadline)
+            throws IllegalArgumentException {
+
+        if (!Grid.isSupported(boxHeight, boxWidth)) {
+            throw new IllegalArgumentException("The boxHeight x boxWidth must be one of " +
+                    Grid.supportedBoxSizesToString() + ".");
         }
 
         int[] puzzleNumsArray = parsePuzzleNumsString(puzzleNums).stream().mapToInt(i -> i).toArray();
@@ -50,27 +175,24 @@ public class SolveController {
             }
         }
 
-        Puzzle puzzle = new Puzzle(grid, puzzleNumsArray);
-        NumberOfSolutions numberOfSolutions;
-        if (puzzle.getNumSolutions() == 1) {
-            numberOfSolutions = NumberOfSolutions.SINGLE_SOLUTION;
-        } else if (puzzle.getNumSolutions() > 1) {
-            numberOfSolutions = NumberOfSolutions.MULTIPLE_SOLUTIONS;
-        } else {
-            numberOfSolutions = NumberOfSolutions.NO_SOLUTIONS;
+        if (algorithm != null && !SolverEngines.getNames().contains(algorithm)) {
+            throw new IllegalArgumentException("The algorithm must be one of " + SolverEngines.getNames() + ".");
         }
+        return new Puzzle(grid, puzzleNumsArray, algorithm, deadline);
+    }
 
-        return new PuzzleResponse().setPuzzleNums(puzzleNumsArray)
-                .setSolution(puzzle.getSolution())
-                .setNumberOfSolutions(numberOfSolutions)
-                .setDifficulty(puzzle.getDifficulty());
+    private static SolverEngine createEngine(Grid grid, String algorithm) {
+        return algorithm == null ? SolverEngines.create(grid) : SolverEngines.create(algorithm);
     }
 
-    @Error
-    public HttpResponse<JsonError> invalidRequest(HttpRequest request, IllegalArgumentException ex) {
-        JsonError error = new JsonError("Bad request: " + ex.getMessage())
-                .link(Link.SELF, Link.of(request.getUri()));
-        return HttpResponse.<JsonError>status(HttpStatus.BAD_REQUEST).body(error);
+    private static NumberOfSolutions numberOfSolutions(long numSolutions) {
+        if (numSolutions == 1) {
+            return NumberOfSolutions.SINGLE_SOLUTION;
+        } else if (numSolutions > 1) {
+            return NumberOfSolutions.MULTIPLE_SOLUTIONS;
+        } else {
+            return NumberOfSolutions.NO_SOLUTIONS;
+        }
     }
 
     private List<Integer> parsePuzzleNumsString(String puzzleNumsString) {
@@ -78,16 +200,12 @@ public class SolveController {
         // 10506402 etc.
         // 1.5.64.2 etc.
         // 1,0,5,0,6,4,0,2, etc.
+        // In the first two, digits past 9 are letters, a or A for 10 up to p or P for 25.
         String[] split = puzzleNumsString.split(",");
         List<Integer> puzzleNums = new ArrayList<>();
         if (split.length ==  1) {
             for (int i = 0; i < puzzleNumsString.length(); i++) {
-                char c = puzzleNumsString.charAt(i);
-                if (c == '.') {
-                    puzzleNums.add(0);
-                } else {
-                    puzzleNums.add(Character.getNumericValue(c));
-                }
+                puzzleNums.add(parsePuzzleNumChar(puzzleNumsString.charAt(i)));
             }
         } else {
             for (String s : split) {
@@ -96,4 +214,18 @@ public class SolveController {
         }
         return puzzleNums;
     }
+
+    private static int parsePuzzleNumChar(char c) throws IllegalArgumentException {
+        if (c == '.') {
+            return 0;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        throw new IllegalArgumentException("The puzzle numbers must only contain the digits 0 to 9, "
+                + "letters for the digits past 9, and '.' for an empty cell.");
+    }
 }
\ No newline at end of file
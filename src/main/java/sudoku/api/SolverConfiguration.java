@@ -0,0 +1,60 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Configuration for choosing solver engines, e.g.
+
+sudoku:
+  solver:
+    default-engine: backtracking
+    engines:
+      3x3: dancing_links
+    calibrate: false
+
+where engines maps boxHeight x boxWidth to an engine name. When calibrate is true each valid grid
+size instead uses whichever engine solved a sample of generated puzzles fastest at startup.
+*/
+@ConfigurationProperties("sudoku.solver")
+public class SolverConfiguration {
+
+    private String defaultEngine;
+    private Map<String, String> engines = new HashMap<>();
+    private boolean calibrate = false;
+    private int calibrationSampleSize = 20;
+
+    public String getDefaultEngine() {
+        return defaultEngine;
+    }
+
+    public void setDefaultEngine(String defaultEngine) {
+        this.defaultEngine = defaultEngine;
+    }
+
+    public Map<String, String> getEngines() {
+        return engines;
+    }
+
+    public void setEngines(Map<String, String> engines) {
+        this.engines = engines;
+    }
+
+    public boolean isCalibrate() {
+        return calibrate;
+    }
+
+    public void setCalibrate(boolean calibrate) {
+        this.calibrate = calibrate;
+    }
+
+    public int getCalibrationSampleSize() {
+        return calibrationSampleSize;
+    }
+
+    public void setCalibrationSampleSize(int calibrationSampleSize) {
+        this.calibrationSampleSize = calibrationSampleSize;
+    }
+}
@@ -0,0 +1,41 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sudoku.logic.Grid;
+import sudoku.logic.SolverEngines;
+
+import java.util.Map;
+
+/*
+Applies the SolverConfiguration to the SolverEngines registry once at startup.
+*/
+@Context
+public class SolverEngineSelection {
+
+    private Logger log = LoggerFactory.getLogger(SolverEngineSelection.class);
+
+    public SolverEngineSelection(SolverConfiguration configuration) {
+        if (configuration.getDefaultEngine() != null) {
+            SolverEngines.selectDefault(configuration.getDefaultEngine());
+        }
+
+        for (Map.Entry<String, String> entry : configuration.getEngines().entrySet()) {
+            String[] boxSize = entry.getKey().split("x");
+            if (boxSize.length != 2) {
+                throw new IllegalArgumentException("Solver engines must be configured by grid size "
+                        + "as boxHeight x boxWidth, e.g. 3x3, not " + entry.getKey() + ".");
+            }
+            SolverEngines.select(Integer.parseInt(boxSize[0]), Integer.parseInt(boxSize[1]), entry.getValue());
+        }
+
+        if (configuration.isCalibrate()) {
+            for (int[] boxSize : Grid.getSupportedBoxSizes()) {
+                String engine = SolverEngines.calibrate(boxSize[0], boxSize[1],
+                        configuration.getCalibrationSampleSize());
+                log.info("Calibrated solver engine for " + boxSize[0] + "x" + boxSize[1] + ": " + engine);
+            }
+        }
+    }
+}
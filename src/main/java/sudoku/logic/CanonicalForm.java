@@ -0,0 +1,445 @@
+package sudoku.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+CanonicalForm picks one puzzle to stand for a puzzle and all of its isomorphs, the puzzles made from it
+by the moves of Generator.isomorph: relabelling the digits, reordering the rows within each band and
+the bands themselves, likewise the columns and stacks, and for square boxes transposing. Two puzzles
+of the same grid size have the same canonical form exactly when one is an isomorph of the other, and
+its 64 bit fingerprint lets pools, banks and bulk generation drop duplicates through a set of longs.
+
+Trying every move is out of the question past 9x9, 16x16 alone has 8 million orders of its columns, so
+the rows and columns are first put in order of an invariant: a hash of the clues in the line which no
+move changes, refined with the invariants of the other lines, the boxes and the digits each clue
+shares until that splits them no further. Lines with equal invariants, rare in a generated puzzle
+unless it is symmetric, are not tried in every order. Instead one of them is picked and marked, the
+invariants refined again, and so on, the way graph canonical labelling tools do, except lines without
+clues, which are all alike. Picks which the invariants so far show can't lead anywhere smaller are
+dropped, as are those which an automorphism, found where two orders gave the same puzzle, shows lead
+to the same puzzles as one already tried. The canonical form is the smallest of the puzzles that
+leaves, comparing them by the invariants on the way to them and then cell by cell with the digits
+relabelled in order of first appearance, so it takes microseconds, and a filled symmetric 25x25 grid
+milliseconds. Should a puzzle still need more than MAX_NODES picks, the search settles for the
+smallest puzzle found by then, which is the same for the same puzzle but may miss an isomorph.
+ */
+public final class CanonicalForm {
+
+    // nodes of the search for the smallest isomorph to visit in full before settling for the
+    // smallest found so far
+    private static final int MAX_NODES = 2000;
+
+    private final Grid grid;
+    private final int[] puzzleNums;
+    private final long fingerprint;
+
+    private CanonicalForm(Grid grid, int[] puzzleNums, long fingerprint) {
+        this.grid = grid;
+        this.puzzleNums = puzzleNums;
+        this.fingerprint = fingerprint;
+    }
+
+    public static CanonicalForm of(Puzzle puzzle) {
+        return of(puzzle.getGrid(), puzzle.getPuzzleNums());
+    }
+
+    public static CanonicalForm of(Grid grid, int[] puzzleNums) throws IllegalArgumentException {
+        if (puzzleNums.length != grid.getNumCells()) {
+            throw new IllegalArgumentException("There must be " + grid.getNumCells() + " puzzle numbers.");
+        }
+        int[] canonical = smallestIsomorph(grid, puzzleNums);
+        if (grid.getBoxHeight() == grid.getBoxWidth()) {
+            int[] transposed = smallestIsomorph(grid, transpose(grid, puzzleNums));
+            if (Arrays.compare(transposed, canonical) < 0) {
+                canonical = transposed;
+            }
+        }
+        return new CanonicalForm(grid, canonical, fingerprint(grid, canonical));
+    }
+
+    public static long fingerprint(Puzzle puzzle) {
+        return of(puzzle).getFingerprint();
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int[] getPuzzleNums() {
+        return puzzleNums;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    private static int[] smallestIsomorph(Grid grid, int[] puzzleNums) {
+        IsomorphSearch search = new IsomorphSearch(grid, puzzleNums);
+        search.search(0);
+        return search.smallest;
+    }
+
+    private static final class IsomorphSearch {
+        // Each node of the search refines the invariants, with the lines picked on the way to it
+        // marked, then picks in turn each of the first set of lines still tied, as a child. Lines
+        // are numbered rows first, then columns from numDigits.
+
+        private final Grid grid;
+        private final int[] puzzleNums;
+        private final int numDigits;
+        private final boolean[] emptyRows;
+        private final boolean[] emptyCols;
+        private final long[] marks;
+        private final int[] path;
+        // each leaf's puzzle and row and column orders, by fingerprint, and the line maps, each an
+        // automorphism of the puzzle, found where two leaves gave the same puzzle
+        private final Map<Long, int[][]> leaves = new HashMap<>();
+        private final List<int[]> automorphisms = new ArrayList<>();
+        private final int[] digitMap;
+        private final long[] pathInvariants;
+        private int[] smallest;
+        private long[] smallestPathInvariants;
+        private int numNodes;
+
+        private IsomorphSearch(Grid grid, int[] puzzleNums) {
+            this.grid = grid;
+            this.puzzleNums = puzzleNums;
+            numDigits = grid.getNumDigits();
+            emptyRows = new boolean[numDigits];
+            emptyCols = new boolean[numDigits];
+            Arrays.fill(emptyRows, true);
+            Arrays.fill(emptyCols, true);
+            for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+                if (puzzleNums[cellIndex] != 0) {
+                    emptyRows[grid.getRowNumber(cellIndex)] = false;
+                    emptyCols[grid.getColNumber(cellIndex)] = false;
+                }
+            }
+            marks = new long[2 * numDigits];
+            path = new int[2 * numDigits];
+            pathInvariants = new long[2 * numDigits + 1];
+            digitMap = new int[numDigits + 1];
+        }
+
+        private void search(int depth) {
+            numNodes++;
+            long[] rowInvariants = new long[numDigits];
+            long[] colInvariants = new long[numDigits];
+            invariants(grid, puzzleNums, marks, rowInvariants, colInvariants);
+            long[] bandInvariants = groupInvariants(grid.getBoxHeight(), rowInvariants);
+            long[] stackInvariants = groupInvariants(grid.getBoxWidth(), colInvariants);
+
+            // picking a row splits the columns no further, nor the digits, in a puzzle where each row has
+            // every digit, which picking a column as well does, so rows and columns take turns
+            int[] tied = new int[numDigits];
+            int numTied = 0;
+            int firstLine = 0;
+            for (int turn = depth; turn < depth + 2 && numTied == 0; turn++) {
+                firstLine = turn % 2 == 0 ? 0 : numDigits;
+                numTied = turn % 2 == 0
+                        ? tiedLines(grid.getBoxHeight(), rowInvariants, bandInvariants, emptyRows, tied)
+                        : tiedLines(grid.getBoxWidth(), colInvariants, stackInvariants, emptyCols, tied);
+            }
+
+            // leaves are compared by the invariants of the nodes on the way to them before their
+            // puzzles, so a node whose invariants so far are larger than the smallest leaf's has
+            // nothing smaller beneath it
+            pathInvariants[depth] = nodeInvariant(rowInvariants, colInvariants, numTied == 0);
+            int comparison = smallest == null ? -1 : Arrays.compare(pathInvariants, 0, depth + 1,
+                    smallestPathInvariants, 0, Integer.min(depth + 1, smallestPathInvariants.length));
+            if (comparison > 0) {
+                return;
+            }
+            if (numTied == 0) {
+                leaf(lineOrder(grid.getBoxHeight(), rowInvariants, bandInvariants),
+                        lineOrder(grid.getBoxWidth(), colInvariants, stackInvariants), depth, comparison < 0);
+                return;
+            }
+
+            // past MAX_NODES only the first child of each node is tried, to reach a leaf
+            int[] explored = new int[numTied];
+            int numExplored = 0;
+            for (int i = 0; i < numTied && (numExplored == 0 || numNodes < MAX_NODES); i++) {
+                int line = firstLine + tied[i];
+                if (inExploredOrbit(line, depth, explored, numExplored)) {
+                    continue;
+                }
+                marks[line] = mix(depth + 1);
+                path[depth] = line;
+                search(depth + 1);
+                marks[line] = 0;
+                explored[numExplored++] = line;
+            }
+        }
+
+        private boolean inExploredOrbit(int line, int depth, int[] explored, int numExplored) {
+            // An automorphism which leaves the lines picked so far where they are takes the subtree
+            // of one child to that of another, with the same puzzles at its leaves, so a child which
+            // one takes an explored child to need not be explored.
+            if (numExplored == 0 || automorphisms.isEmpty()) {
+                return false;
+            }
+            int[] orbits = new int[2 * numDigits];
+            for (int i = 0; i < orbits.length; i++) {
+                orbits[i] = i;
+            }
+            for (int[] automorphism : automorphisms) {
+                boolean fixesPath = true;
+                for (int d = 0; d < depth && fixesPath; d++) {
+                    fixesPath = automorphism[path[d]] == path[d];
+                }
+                if (fixesPath) {
+                    for (int i = 0; i < orbits.length; i++) {
+                        orbits[find(orbits, i)] = find(orbits, automorphism[i]);
+                    }
+                }
+            }
+            for (int i = 0; i < numExplored; i++) {
+                if (find(orbits, explored[i]) == find(orbits, line)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void leaf(int[] rowOrder, int[] colOrder, int depth, boolean smallerPath) {
+            int[] leafNums = relabelled(puzzleNums, rowOrder, colOrder, digitMap);
+            int[][] same = leaves.putIfAbsent(fingerprint(grid, leafNums), new int[][]{leafNums, rowOrder, colOrder});
+            if (same != null && Arrays.equals(same[0], leafNums)) {
+                int[] automorphism = new int[2 * numDigits];
+                for (int i = 0; i < numDigits; i++) {
+                    automorphism[same[1][i]] = rowOrder[i];
+                    automorphism[numDigits + same[2][i]] = numDigits + colOrder[i];
+                }
+                automorphisms.add(automorphism);
+            }
+            if (smallerPath || Arrays.compare(leafNums, smallest) < 0) {
+                smallest = leafNums;
+                smallestPathInvariants = Arrays.copyOf(pathInvariants, depth + 1);
+            }
+        }
+    }
+
+    private static int find(int[] orbits, int line) {
+        while (orbits[line] != line) {
+            line = orbits[line];
+        }
+        return line;
+    }
+
+    private static void invariants(Grid grid, int[] puzzleNums, long[] marks, long[] rowInvariants,
+                                   long[] colInvariants) {
+        // Each row is hashed as the multiset of its segments, one for each stack, each segment the
+        // multiset of its clues, so it is the same whatever order the columns are in, and likewise
+        // each column by bands, plus its mark if it has been picked. A clue starts as the number of
+        // times its digit appears, then each round takes in the hashes of its row, column, box and
+        // digit from the round before, until a round splits none of them any further.
+        int numDigits = grid.getNumDigits();
+        long[] clueInvariants = new long[grid.getNumCells()];
+        long[] boxInvariants = new long[numDigits];
+        long[] digitInvariants = new long[numDigits + 1];
+        for (int digit : puzzleNums) {
+            digitInvariants[digit]++;
+        }
+        for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+            clueInvariants[cellIndex] = mix(digitInvariants[puzzleNums[cellIndex]]);
+        }
+
+        int numClasses = 0;
+        while (true) {
+            Arrays.fill(rowInvariants, 0);
+            Arrays.fill(colInvariants, 0);
+            Arrays.fill(boxInvariants, 0);
+            Arrays.fill(digitInvariants, 0);
+            for (int line = 0; line < numDigits; line++) {
+                for (int group = 0; group < grid.getBoxHeight(); group++) {
+                    long segment = 0;
+                    for (int i = group * grid.getBoxWidth(); i < (group + 1) * grid.getBoxWidth(); i++) {
+                        int cellIndex = grid.getRowIndices()[line][i];
+                        if (puzzleNums[cellIndex] != 0) {
+                            segment += mix(clueInvariants[cellIndex]);
+                        }
+                    }
+                    rowInvariants[line] += mix(segment);
+                }
+                rowInvariants[line] += marks[line];
+                for (int group = 0; group < grid.getBoxWidth(); group++) {
+                    long segment = 0;
+                    for (int i = group * grid.getBoxHeight(); i < (group + 1) * grid.getBoxHeight(); i++) {
+                        int cellIndex = grid.getColIndices()[line][i];
+                        if (puzzleNums[cellIndex] != 0) {
+                            segment += mix(clueInvariants[cellIndex]);
+                        }
+                    }
+                    colInvariants[line] += mix(segment);
+                }
+                colInvariants[line] += marks[numDigits + line];
+            }
+            for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+                if (puzzleNums[cellIndex] != 0) {
+                    boxInvariants[grid.getBoxNumber(cellIndex)] += mix(clueInvariants[cellIndex]);
+                    digitInvariants[puzzleNums[cellIndex]] += mix(clueInvariants[cellIndex]);
+                }
+            }
+            int previousNumClasses = numClasses;
+            numClasses = numDistinct(rowInvariants) + numDistinct(colInvariants) + numDistinct(boxInvariants)
+                    + numDistinct(digitInvariants);
+            if (numClasses <= previousNumClasses) {
+                return;
+            }
+            for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+                if (puzzleNums[cellIndex] != 0) {
+                    clueInvariants[cellIndex] = mix(clueInvariants[cellIndex]
+                            + mix(rowInvariants[grid.getRowNumber(cellIndex)]
+                            + mix(colInvariants[grid.getColNumber(cellIndex)]
+                            + mix(boxInvariants[grid.getBoxNumber(cellIndex)]
+                            + mix(digitInvariants[puzzleNums[cellIndex]])))));
+                }
+            }
+        }
+    }
+
+    private static int numDistinct(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int numDistinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                numDistinct++;
+            }
+        }
+        return numDistinct;
+    }
+
+    private static long nodeInvariant(long[] rowInvariants, long[] colInvariants, boolean isLeaf) {
+        // the multisets of the row and column invariants
+        long nodeInvariant = isLeaf ? 1 : 0;
+        for (long[] lineInvariants : new long[][]{rowInvariants, colInvariants}) {
+            long[] sorted = lineInvariants.clone();
+            Arrays.sort(sorted);
+            for (long invariant : sorted) {
+                nodeInvariant = mix(nodeInvariant * 31 + invariant);
+            }
+        }
+        return nodeInvariant;
+    }
+
+    private static long[] groupInvariants(int linesPerGroup, long[] lineInvariants) {
+        // each band (or stack) hashed as the multiset of its lines
+        long[] groupInvariants = new long[lineInvariants.length / linesPerGroup];
+        for (int line = 0; line < lineInvariants.length; line++) {
+            groupInvariants[line / linesPerGroup] += mix(lineInvariants[line]);
+        }
+        return groupInvariants;
+    }
+
+    private static int compareLines(int linesPerGroup, long[] lineInvariants, long[] groupInvariants, int line,
+                                    int otherLine) {
+        // lines in order of their band's (or stack's) invariant, then their own
+        int comparison = Long.compare(groupInvariants[line / linesPerGroup],
+                groupInvariants[otherLine / linesPerGroup]);
+        return comparison != 0 ? comparison : Long.compare(lineInvariants[line], lineInvariants[otherLine]);
+    }
+
+    private static int tiedLines(int linesPerGroup, long[] lineInvariants, long[] groupInvariants,
+                                 boolean[] emptyLines, int[] tied) {
+        // Fills tied with the lines with clues which compare equal to another, those which come first
+        // if there are several such sets, returning how many there are. Lines without clues are all
+        // alike, so can be left tied.
+        int first = -1;
+        for (int line = 0; line < lineInvariants.length; line++) {
+            if (emptyLines[line]
+                    || first != -1 && compareLines(linesPerGroup, lineInvariants, groupInvariants, line, first) >= 0) {
+                continue;
+            }
+            for (int other = 0; other < lineInvariants.length; other++) {
+                if (other != line && !emptyLines[other]
+                        && compareLines(linesPerGroup, lineInvariants, groupInvariants, line, other) == 0) {
+                    first = line;
+                    break;
+                }
+            }
+        }
+        int numTied = 0;
+        for (int line = 0; first != -1 && line < lineInvariants.length; line++) {
+            if (!emptyLines[line] && compareLines(linesPerGroup, lineInvariants, groupInvariants, line, first) == 0) {
+                tied[numTied++] = line;
+            }
+        }
+        return numTied;
+    }
+
+    private static int[] lineOrder(int linesPerGroup, long[] lineInvariants, long[] groupInvariants) {
+        // The order of the rows (or columns), new line i taking old line order[i], with each band (or
+        // stack) kept together, the bands in order of their invariants and the lines of a band in
+        // order of theirs, ties going by line number.
+        int[] order = new int[lineInvariants.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = 1; i < order.length; i++) {
+            int line = order[i];
+            int j = i - 1;
+            for (; j >= 0 && compareLines(linesPerGroup, lineInvariants, groupInvariants, order[j], line) > 0; j--) {
+                order[j + 1] = order[j];
+            }
+            order[j + 1] = line;
+        }
+        return order;
+    }
+
+    private static int[] relabelled(int[] puzzleNums, int[] rowOrder, int[] colOrder, int[] digitMap) {
+        // the puzzle with its rows and columns in these orders and its digits relabelled in order of
+        // first appearance
+        Arrays.fill(digitMap, 0);
+        int nextDigit = 1;
+        int numDigits = rowOrder.length;
+        int[] relabelled = new int[puzzleNums.length];
+        int cellIndex = 0;
+        for (int row = 0; row < numDigits; row++) {
+            int rowStart = rowOrder[row] * numDigits;
+            for (int col = 0; col < numDigits; col++, cellIndex++) {
+                int digit = puzzleNums[rowStart + colOrder[col]];
+                if (digit != 0) {
+                    if (digitMap[digit] == 0) {
+                        digitMap[digit] = nextDigit++;
+                    }
+                    digit = digitMap[digit];
+                }
+                relabelled[cellIndex] = digit;
+            }
+        }
+        return relabelled;
+    }
+
+    private static int[] transpose(Grid grid, int[] puzzleNums) {
+        int numDigits = grid.getNumDigits();
+        int[] transposed = new int[puzzleNums.length];
+        for (int row = 0; row < numDigits; row++) {
+            for (int col = 0; col < numDigits; col++) {
+                transposed[col * numDigits + row] = puzzleNums[row * numDigits + col];
+            }
+        }
+        return transposed;
+    }
+
+    private static long fingerprint(Grid grid, int[] canonical) {
+        long fingerprint = mix(grid.getBoxHeight() * 64L + grid.getBoxWidth());
+        for (int digit : canonical) {
+            fingerprint = mix(fingerprint * 31 + digit);
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long value) {
+        // the SplittableRandom (splitmix64) mix, which spreads every bit of the value over the result
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,119 @@
+package sudoku.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+Combinations lists every combination of 2 up to MAX_SIZE of the items 0 to numItems - 1, each as a
+bitmask, in lexicographic order, for PuzzleRater's naked sets, whose items are the cells of a block
+which could be in one, and hidden sets, whose items are the digits. Along with each combination is
+where the next one which starts with different first items is, so a search can skip every
+combination starting with items which already rule themselves out. The tables for each number of
+items, up to the most digits of any grid, are made once and shared.
+ */
+final class Combinations {
+
+    static final int MAX_SIZE = 4;
+
+    private static final Map<Integer, Combinations> byNumItems = new HashMap<>();
+
+    private final int numItems;
+    // masks[size] lists the combinations of size items, and skips[size][prefixLength][i] is the
+    // index of the first combination after masks[size][i] with different first prefixLength items
+    private final int[][] masks = new int[MAX_SIZE + 1][];
+    private final int[][][] skips = new int[MAX_SIZE + 1][][];
+
+    private Combinations(int numItems) {
+        this.numItems = numItems;
+        for (int size = 2; size <= MAX_SIZE; size++) {
+            masks[size] = new int[(int) binomial(numItems, size)];
+            addCombinations(masks[size], 0, 0, 0, size);
+            skips[size] = new int[size][];
+            for (int prefixLength = 1; prefixLength < size; prefixLength++) {
+                skips[size][prefixLength] = skipTable(masks[size], prefixLength);
+            }
+        }
+    }
+
+    static synchronized Combinations of(int numItems) {
+        return byNumItems.computeIfAbsent(numItems, Combinations::new);
+    }
+
+    int getNumItems() {
+        return numItems;
+    }
+
+    int[] getMasks(int size) {
+        return masks[size];
+    }
+
+    int nextSet(int size, int from, int[] itemMasks) {
+        // Returns the index, from from on, of the first combination of size items the union of whose
+        // itemMasks has no more than size bits set, or -1 if there is none. The union is checked as
+        // each item is added, lowest first, and once it has too many bits set no combination
+        // starting with the same items can do.
+        int[] sizeMasks = masks[size];
+        int[][] sizeSkips = skips[size];
+        int i = from;
+        while (i < sizeMasks.length) {
+            int union = 0;
+            int prefixLength = 0;
+            int next = -1;
+            for (int items = sizeMasks[i]; items != 0; items &= items - 1) {
+                union |= itemMasks[Integer.numberOfTrailingZeros(items)];
+                prefixLength++;
+                if (Integer.bitCount(union) > size) {
+                    next = prefixLength < size ? sizeSkips[prefixLength][i] : i + 1;
+                    break;
+                }
+            }
+            if (next == -1) {
+                return i;
+            }
+            i = next;
+        }
+        return -1;
+    }
+
+    private int addCombinations(int[] combinations, int count, int firstItem, int chosen, int size) {
+        // adds each combination of the items chosen so far with size more from firstItem on
+        if (size == 0) {
+            combinations[count] = chosen;
+            return count + 1;
+        }
+        for (int item = firstItem; item <= numItems - size; item++) {
+            count = addCombinations(combinations, count, item + 1, chosen | (1 << item), size - 1);
+        }
+        return count;
+    }
+
+    private static int[] skipTable(int[] combinations, int prefixLength) {
+        int[] skipTo = new int[combinations.length];
+        for (int i = combinations.length - 1; i >= 0; i--) {
+            if (i + 1 < combinations.length
+                    && prefix(combinations[i], prefixLength) == prefix(combinations[i + 1], prefixLength)) {
+                skipTo[i] = skipTo[i + 1];
+            } else {
+                skipTo[i] = i + 1;
+            }
+        }
+        return skipTo;
+    }
+
+    private static int prefix(int combination, int prefixLength) {
+        // the lowest prefixLength items of the combination
+        int prefix = 0;
+        for (int n = 0; n < prefixLength; n++) {
+            prefix |= Integer.lowestOneBit(combination & ~prefix);
+        }
+        return prefix;
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,262 @@
+package sudoku.logic;
+
+import java.util.*;
+
+/*
+DancingLinksSolver solves sudoku puzzles as an exact cover problem using Knuth's Algorithm X with
+dancing links - c.f. https://arxiv.org/abs/cs/0011047
+Each choice of a digit for a cell is a row which covers four constraint columns: the cell is filled,
+and the digit appears in the cell's row, column and box. A solution is a set of rows covering every
+column exactly once. The search always branches on the column with the fewest remaining rows, which
+makes it behave much more evenly than Solver on near-empty puzzles or those with many solutions.
+The links are held in int arrays indexed by node rather than as objects.
+ */
+class DancingLinksSolver implements SolverEngine {
+
+    private Grid grid;
+    private int numCells;
+    private int numDigits;
+    private int numColumns;
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] rowOf;
+    private int[] firstNodeOfRow;
+    private int[] columnSize;
+    private int[] chosenRows;
+    private long numSolutions;
+    private long solutionLimit;
+    private int[] solution;
+    private SolutionListener listener;
+    private boolean stopped;
+
+    public DancingLinksSolver() {
+    }
+
+    public int solve(Puzzle puzzle) {
+        return (int) solve(puzzle, Solver.MAX_SOLUTIONS, null);
+    }
+
+    public long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener) {
+        grid = puzzle.getGrid();
+        numCells = grid.getNumCells();
+        numDigits = grid.getNumDigits();
+        buildLinks(null, null);
+        setSearch(solutionLimit, listener);
+
+        // the clues are rows which must be in the cover, so take them out of the matrix first
+        int[] puzzleNums = puzzle.getPuzzleNums();
+        int depth = 0;
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            if (puzzleNums[cellIndex] != 0) {
+                int row = cellIndex * numDigits + puzzleNums[cellIndex] - 1;
+                if (!selectGivenRow(row)) {
+                    // the clue clashes with an earlier clue
+                    return numSolutions;
+                }
+                chosenRows[depth++] = row;
+            }
+        }
+
+        search(depth);
+        return numSolutions;
+    }
+
+    public int[] generateRandomSolution(Grid grid, SplittableRandom random) {
+        // solve an empty puzzle for use in generating new random puzzles. The search tries the rows
+        // of a column in the order they were added, so add the cells, and the digits for each
+        // cell, in a random order.
+        this.grid = grid;
+        numCells = grid.getNumCells();
+        numDigits = grid.getNumDigits();
+        int[] cellOrder = new int[numCells];
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            cellOrder[cellIndex] = cellIndex;
+        }
+        Solver.shuffle(cellOrder, random);
+
+        int[][] digitOrders = new int[numCells][numDigits];
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            for (int j = 0; j < numDigits; j++) {
+                digitOrders[cellIndex][j] = j + 1;
+            }
+            Solver.shuffle(digitOrders[cellIndex], random);
+        }
+
+        buildLinks(cellOrder, digitOrders);
+        setSearch(1, null);
+        search(0);
+        return solution;
+    }
+
+    private void setSearch(long solutionLimit, SolutionListener listener) {
+        numSolutions = 0;
+        solution = null;
+        this.solutionLimit = solutionLimit;
+        this.listener = listener;
+        stopped = false;
+        chosenRows = new int[numCells];
+    }
+
+    public int[] getSolution() {
+        return solution;
+    }
+
+    private int cellColumn(int cellIndex) {
+        // columns are numbered from 1, node 0 being the root of the column headers
+        return 1 + cellIndex;
+    }
+
+    private int digitColumn(int blockType, int blockNumber, int digit) {
+        // blockType 1, 2 and 3 are the row, column and box a digit is placed in
+        return 1 + blockType * numCells + blockNumber * numDigits + digit - 1;
+    }
+
+    private void buildLinks(int[] cellOrder, int[][] digitOrders) {
+        // 4 * numCells constraint columns, each of numCells * numDigits rows has four nodes.
+        // The rows are added cell by cell, in the given orders if there are any.
+        numColumns = 4 * numCells;
+        int numNodes = 1 + numColumns + 4 * numCells * numDigits;
+        left = new int[numNodes];
+        right = new int[numNodes];
+        up = new int[numNodes];
+        down = new int[numNodes];
+        column = new int[numNodes];
+        rowOf = new int[numNodes];
+        firstNodeOfRow = new int[numCells * numDigits];
+        columnSize = new int[numColumns + 1];
+
+        for (int header = 0; header <= numColumns; header++) {
+            left[header] = header == 0 ? numColumns : header - 1;
+            right[header] = header == numColumns ? 0 : header + 1;
+            up[header] = header;
+            down[header] = header;
+            column[header] = header;
+        }
+
+        int node = numColumns + 1;
+        for (int i = 0; i < numCells; i++) {
+            int cellIndex = cellOrder == null ? i : cellOrder[i];
+            for (int j = 0; j < numDigits; j++) {
+                int digit = digitOrders == null ? j + 1 : digitOrders[cellIndex][j];
+                int row = cellIndex * numDigits + digit - 1;
+                int first = node;
+                firstNodeOfRow[row] = first;
+                int[] columns = {
+                        cellColumn(cellIndex),
+                        digitColumn(1, grid.getRowNumber(cellIndex), digit),
+                        digitColumn(2, grid.getColNumber(cellIndex), digit),
+                        digitColumn(3, grid.getBoxNumber(cellIndex), digit)
+                };
+                for (int header : columns) {
+                    column[node] = header;
+                    rowOf[node] = row;
+                    // append to the bottom of the column
+                    up[node] = up[header];
+                    down[node] = header;
+                    down[up[header]] = node;
+                    up[header] = node;
+                    columnSize[header]++;
+                    // append to the end of the row
+                    left[node] = node == first ? node : node - 1;
+                    right[node] = first;
+                    right[left[node]] = node;
+                    left[first] = node;
+                    node++;
+                }
+            }
+        }
+    }
+
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                columnSize[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int header) {
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                columnSize[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+    private boolean selectGivenRow(int row) {
+        // cover each of the row's columns unless one has already been covered by another clue
+        int first = firstNodeOfRow[row];
+        int node = first;
+        do {
+            int header = column[node];
+            if (right[left[header]] != header) {
+                return false;
+            }
+            cover(header);
+            node = right[node];
+        }
+        while (node != first);
+        return true;
+    }
+
+    private void search(int depth) {
+        if (right[0] == 0) {
+            // every column is covered
+            numSolutions++;
+            boolean copying = listener != null && listener.takesSolutions();
+            int[] digits = null;
+            if (numSolutions == 1 || copying) {
+                digits = new int[numCells];
+                for (int i = 0; i < depth; i++) {
+                    digits[chosenRows[i] / numDigits] = chosenRows[i] % numDigits + 1;
+                }
+                if (numSolutions == 1) {
+                    solution = digits;
+                }
+            }
+            if (listener != null && !listener.onSolution(copying ? digits : null)) {
+                stopped = true;
+            }
+            return;
+        }
+
+        // choose the column with the fewest rows remaining
+        int header = right[0];
+        for (int j = right[header]; j != 0; j = right[j]) {
+            if (columnSize[j] < columnSize[header]) {
+                header = j;
+            }
+        }
+        if (columnSize[header] == 0) {
+            return;
+        }
+
+        cover(header);
+        for (int i = down[header]; i != header; i = down[i]) {
+            chosenRows[depth] = rowOf[i];
+            for (int j = right[i]; j != i; j = right[j]) {
+                cover(column[j]);
+            }
+            search(depth + 1);
+            for (int j = left[i]; j != i; j = left[j]) {
+                uncover(column[j]);
+            }
+            // stop searching if we have enough solutions or the listener has stopped the search
+            if (numSolutions >= solutionLimit || stopped || (listener != null && listener.isStopped())) {
+                break;
+            }
+        }
+        uncover(header);
+    }
+}
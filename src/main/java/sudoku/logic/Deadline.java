@@ -0,0 +1,51 @@
+package sudoku.logic;
+
+import java.time.Duration;
+
+/*
+A Deadline lets the caller of a long search or generation give up on it part way. It expires once its
+time is up, if it has a time, or as soon as it is cancelled, e.g. from another thread when whoever
+wanted the result has gone away. Solving checks it between branches of the search and generating
+between clues, so work stops soon after, and check tells the caller the result is missing rather than
+leaving it to use an unfinished one.
+ */
+public final class Deadline {
+
+    private final Duration timeout;
+    private final long expiresAt;
+    private volatile boolean cancelled;
+    private volatile boolean expired;
+
+    private Deadline(Duration timeout) {
+        this.timeout = timeout;
+        expiresAt = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+    }
+
+    public static Deadline none() {
+        // only expires if cancelled
+        return new Deadline(null);
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(timeout);
+    }
+
+    public void cancel() {
+        cancelled = true;
+        expired = true;
+    }
+
+    public boolean isExpired() {
+        if (!expired && timeout != null && System.nanoTime() - expiresAt >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    public void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(cancelled ? "The work was cancelled."
+                    : "The work took longer than its deadline of " + timeout.toMillis() + " ms.");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package sudoku.logic;
+
+/*
+Thrown when solving or generating is given up because its Deadline expired before it finished.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
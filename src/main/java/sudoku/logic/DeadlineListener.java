@@ -0,0 +1,38 @@
+package sudoku.logic;
+
+/*
+DeadlineListener stops a search once its Deadline expires and remembers whether it did, so a search
+which finished in time isn't thrown away because the deadline expired just after. It takes none of
+the solutions, so the solver doesn't copy them for it.
+ */
+class DeadlineListener implements SolutionListener {
+
+    private final Deadline deadline;
+    private volatile boolean stopped;
+
+    DeadlineListener(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public boolean onSolution(int[] solution) {
+        return true;
+    }
+
+    @Override
+    public boolean takesSolutions() {
+        return false;
+    }
+
+    @Override
+    public boolean isStopped() {
+        if (!stopped && deadline.isExpired()) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    boolean hasStopped() {
+        return stopped;
+    }
+}
@@ -1,15 +1,27 @@
 package sudoku.logic;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 public class Generator {
 
+    // duplicates in a row after which bulk generation gives up on finding new puzzles
+    static final int MAX_DUPLICATES = 1000;
+
     private final Grid grid;
     private final int[][] squareSymmetries;
     private final int[][] rectangularSymmetries;
 
     public Generator(Grid grid) {
-        // limit to  2x2, 2x3, 2x4, 3x3
+        // limit to the box sizes in Grid.getSupportedBoxSizes()
         this.grid = grid;
 
         // generate reflections and rotations for more symmetrical looking puzzles
@@ -32,13 +44,12 @@ public class Generator {
         }
     }
 
-    private int[] getRandomizedIndices() {
-        Integer[] puzzleIndices = new Integer[grid.getNumCells()];
+    private int[] getRandomizedIndices(SplittableRandom random) {
+        int[] puzzleIndices = new int[grid.getNumCells()];
         for (int i = 0; i < puzzleIndices.length; i++) {
             puzzleIndices[i] = i;
         }
-        List<Integer> puzzleIndicesList = Arrays.asList(puzzleIndices);
-        Collections.shuffle(puzzleIndicesList);
+        Solver.shuffle(puzzleIndices, random);
 
         // create a list of indices starting with a random index then adding its rotations and
         // reflections, then repeat until all indices selected
@@ -53,7 +64,7 @@ public class Generator {
             symmetries = rectangularSymmetries;
         }
         int index = 0;
-        for (int i : puzzleIndicesList) {
+        for (int i : puzzleIndices) {
             if (!seen[i]) {
                 puzzleIndicesArray[index++] = i;
                 seen[i] = true;
@@ -69,24 +80,181 @@ public class Generator {
     }
 
     public Puzzle generatePuzzle(Difficulty targetDifficulty) {
+        return generatePuzzle(targetDifficulty, new SplittableRandom());
+    }
+
+    public Puzzle generatePuzzle(Difficulty targetDifficulty, SplittableRandom random) {
+        return generatePuzzle(targetDifficulty, random, Deadline.none());
+    }
+
+    public Puzzle generatePuzzle(Difficulty targetDifficulty, SplittableRandom random, Deadline deadline)
+            throws DeadlineExceededException {
+        // Every random choice is drawn from the given random, so the same seed always gives the
+        // same puzzle, for the same grid and solver engine selection. The random is only ever used
+        // by this call, never shared between threads.
+        Puzzle puzzle = generatePuzzle(targetDifficulty, random, deadline::isExpired);
+        if (puzzle == null) {
+            deadline.check();
+        }
+        return puzzle;
+    }
+
+    public Puzzle generatePuzzle(Difficulty targetDifficulty, Executor executor, int parallelism)
+            throws IllegalArgumentException {
+        return generatePuzzle(targetDifficulty, executor, parallelism, Deadline.none());
+    }
+
+    public Puzzle generatePuzzle(Difficulty targetDifficulty, Executor executor, int parallelism, Deadline deadline)
+            throws IllegalArgumentException, DeadlineExceededException {
+        /*
+        Make parallelism many attempts at once on the executor, each generating puzzles until one
+        matches the target difficulty. The first match is returned and the other attempts notice and
+        stop, between clues or between puzzles, so for rarer difficulties the wait shrinks roughly
+        with the number of cores. Each attempt has its own random, split from one made here. If the
+        deadline expires first every attempt stops and the first to notice gives up for them all.
+         */
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        if (parallelism == 1) {
+            return generatePuzzle(targetDifficulty, new SplittableRandom(), deadline);
+        }
+        SplittableRandom random = new SplittableRandom();
+        CompletableFuture<Puzzle> firstMatch = new CompletableFuture<>();
+        try {
+            for (int n = 0; n < parallelism; n++) {
+                SplittableRandom attemptRandom = random.split();
+                executor.execute(() -> {
+                    try {
+                        Puzzle puzzle = generatePuzzle(targetDifficulty, attemptRandom,
+                                () -> firstMatch.isDone() || deadline.isExpired());
+                        if (puzzle != null) {
+                            firstMatch.complete(puzzle);
+                        } else if (!firstMatch.isDone()) {
+                            deadline.check();
+                        }
+                    } catch (RuntimeException ex) {
+                        firstMatch.completeExceptionally(ex);
+                    }
+                });
+            }
+            return firstMatch.join();
+        } catch (CompletionException ex) {
+            throw (RuntimeException) ex.getCause();
+        } finally {
+            // stops the other attempts, including on an exception before any match
+            firstMatch.cancel(false);
+        }
+    }
+
+    public long generatePuzzles(Difficulty targetDifficulty, long count, Executor executor, int parallelism,
+                                Predicate<Puzzle> listener) throws IllegalArgumentException {
+        /*
+        Generate count puzzles of the target difficulty, at most parallelism of them at once on the
+        executor, passing each to the listener as it is finished until the listener returns false.
+        Another puzzle is only started once the listener has taken one, so a listener which is slow
+        to take them, e.g. waiting on a slow client, slows generation down rather than letting
+        puzzles pile up. Once it stops, the puzzles still being generated are abandoned by their
+        next clue. No two puzzles are isomorphs of each other, a puzzle with the same CanonicalForm
+        fingerprint as one before is dropped and another generated in its place. After
+        MAX_DUPLICATES of those in a row the grid size and difficulty has run out of new puzzles,
+        e.g. there are only a few dozen with 2x2 boxes, and generation ends early. Returns the number of
+        puzzles the listener took.
+         */
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1.");
+        }
+        SplittableRandom random = new SplittableRandom();
+        AtomicBoolean stopped = new AtomicBoolean();
+        Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+        Queue<CompletableFuture<Puzzle>> finished = new ConcurrentLinkedQueue<>();
+        Semaphore numFinished = new Semaphore(0);
+        long numStarted = 0;
+        long numTaken = 0;
+        try {
+            for (; numStarted < Math.min(count, parallelism); numStarted++) {
+                startPuzzle(targetDifficulty, executor, random.split(), stopped, fingerprints, finished, numFinished);
+            }
+            while (numTaken < count) {
+                numFinished.acquireUninterruptibly();
+                Puzzle puzzle = finished.remove().join();
+                if (puzzle == null || !listener.test(puzzle)) {
+                    break;
+                }
+                numTaken++;
+                if (numStarted < count) {
+                    startPuzzle(targetDifficulty, executor, random.split(), stopped, fingerprints, finished,
+                            numFinished);
+                    numStarted++;
+                }
+            }
+        } catch (CompletionException ex) {
+            throw (RuntimeException) ex.getCause();
+        } finally {
+            stopped.set(true);
+        }
+        return numTaken;
+    }
+
+    private void startPuzzle(Difficulty targetDifficulty, Executor executor, SplittableRandom random,
+                             AtomicBoolean stopped, Set<Long> fingerprints, Queue<CompletableFuture<Puzzle>> finished,
+                             Semaphore numFinished) {
+        // the puzzle is null once there have been too many duplicates, or if stopped
+        CompletableFuture<Puzzle> puzzle = CompletableFuture.supplyAsync(() -> {
+            for (int duplicates = 0; duplicates < MAX_DUPLICATES; duplicates++) {
+                Puzzle generated = generatePuzzle(targetDifficulty, random, stopped::get);
+                if (generated == null || fingerprints.add(CanonicalForm.fingerprint(generated))) {
+                    return generated;
+                }
+            }
+            return null;
+        }, executor);
+        puzzle.whenComplete((result, ex) -> {
+            finished.add(puzzle);
+            numFinished.release();
+        });
+    }
+
+    private Puzzle generatePuzzle(Difficulty targetDifficulty, SplittableRandom random, BooleanSupplier cancelled) {
+        // returns null if cancelled before a puzzle of the target difficulty is found
         Puzzle puzzle;
         while (true) {
             // generate a random solved puzzle and remove clues one-by-one
-            int[] puzzleIndices = getRandomizedIndices();
-            int[] puzzleNums = (new Solver()).generateRandomSolution(grid);
-            for (int i = 0; i < puzzleNums.length; i++) {
-                int puzzleIndex = puzzleIndices[i];
-                int existingClue = puzzleNums[puzzleIndex];
-                puzzleNums[puzzleIndex] = 0;
-                puzzle = new Puzzle(grid, puzzleNums);
-                // if the puzzle now has multiple solutions, put the deleted clue back
-                if (puzzle.getNumSolutions() > 1) {
-                    puzzleNums[puzzleIndex] = existingClue;
+            int[] puzzleIndices = getRandomizedIndices(random);
+            int[] solution = SolverEngines.create(grid).generateRandomSolution(grid, random);
+            int[] puzzleNums = Arrays.copyOf(solution, solution.length);
+            Solver solver = Workspaces.leaseSolver(grid);
+            try {
+                UniquenessOracle oracle = new UniquenessOracle(grid, puzzleNums, solver);
+                for (int i = 0; i < puzzleNums.length; i++) {
+                    if (cancelled.getAsBoolean()) {
+                        return null;
+                    }
+                    int puzzleIndex = puzzleIndices[i];
+                    // if the puzzle would have multiple solutions without this clue, leave it in
+                    if (!oracle.removeClue(puzzleIndex)) {
+                        continue;
+                    }
+                    puzzleNums[puzzleIndex] = 0;
+                    // Steer towards the target by rating the puzzle as each clue goes, leaving in
+                    // any clue whose removal makes the puzzle harder than the target, or too hard
+                    // to rate at all. Ratings only go up as clues go, give or take, so a puzzle
+                    // which overshoots now is unlikely to come back. Nothing rated is harder than
+                    // FIENDISH, so for that the ratings cost more than they save.
+                    if (isSteered(targetDifficulty)
+                            && isHarderThanTarget(oracle, puzzleNums, solution, targetDifficulty)) {
+                        puzzleNums[puzzleIndex] = solution[puzzleIndex];
+                        oracle.restoreClue(puzzleIndex, solution[puzzleIndex]);
+                    }
                 }
+            } finally {
+                Workspaces.release(grid, solver);
             }
             // we now have a 'minimal' valid puzzle, i.e. a puzzle with a single solution where
-            // removal of any one clue would lead to multiple solutions
-            puzzle = new Puzzle(grid, puzzleNums);
+            // removal of any one clue would lead to multiple solutions (or, for the larger grids,
+            // to a puzzle propagation alone cannot solve), or, when steering, to a puzzle harder
+            // than the target. If it has not reached the target then it never will, so start again.
+            puzzle = Puzzle.withSolution(grid, puzzleNums, solution);
             if (puzzle.getDifficulty() == targetDifficulty) {
                 return puzzle;
             } else if (targetDifficulty == Difficulty.UNRATED) {
@@ -95,4 +263,159 @@ public class Generator {
             }
         }
     }
-}
\ No newline at end of file
+
+    public Puzzle generateIsomorph(Difficulty targetDifficulty) {
+        return generateIsomorph(targetDifficulty, new SplittableRandom());
+    }
+
+    public Puzzle generateIsomorph(Difficulty targetDifficulty, SplittableRandom random) {
+        return generateIsomorph(targetDifficulty, random, Deadline.none());
+    }
+
+    public Puzzle generateIsomorph(Difficulty targetDifficulty, SplittableRandom random, Deadline deadline)
+            throws DeadlineExceededException {
+        // An isomorph of a banked seed of the target difficulty, which takes microseconds. Only if
+        // the bank has no seed for this grid and difficulty is one generated, within the deadline,
+        // and banked for next time.
+        Puzzle seed = SeedBank.randomSeed(grid, targetDifficulty, random);
+        if (seed == null) {
+            Puzzle puzzle = generatePuzzle(targetDifficulty, random, deadline);
+            SeedBank.add(puzzle);
+            return puzzle;
+        }
+        return isomorph(seed, random);
+    }
+
+    public long generateIsomorphs(Difficulty targetDifficulty, long count, SplittableRandom random,
+                                  Predicate<Puzzle> listener) {
+        return generateIsomorphs(targetDifficulty, count, random, () -> false, listener);
+    }
+
+    public long generateIsomorphs(Difficulty targetDifficulty, long count, SplittableRandom random,
+                                  BooleanSupplier cancelled, Predicate<Puzzle> listener) {
+        /*
+        Generate count isomorphs of banked seeds of the target difficulty, passing each to the
+        listener until it returns false. As with generatePuzzles no two are isomorphs of each other,
+        so each seed is used once, in a random order, and once they have all been used puzzles are
+        generated fresh, and banked as seeds, until MAX_DUPLICATES in a row are dropped. A fresh
+        puzzle takes far longer than an isomorph, so generating one stops, by its next clue, once
+        cancelled is true, e.g. when the client streaming them has gone away. Returns the number of
+        puzzles the listener took.
+         */
+        List<Puzzle> seeds = SeedBank.seeds(grid, targetDifficulty);
+        Set<Long> fingerprints = new HashSet<>();
+        long numTaken = 0;
+        for (int duplicates = 0; numTaken < count && duplicates < MAX_DUPLICATES; ) {
+            boolean fresh = seeds.isEmpty();
+            Puzzle puzzle = fresh ? generatePuzzle(targetDifficulty, random, cancelled)
+                    : isomorph(seeds.remove(random.nextInt(seeds.size())), random);
+            if (puzzle == null) {
+                break;
+            }
+            if (!fingerprints.add(CanonicalForm.fingerprint(puzzle))) {
+                duplicates++;
+                continue;
+            }
+            duplicates = 0;
+            if (fresh) {
+                SeedBank.add(puzzle);
+            }
+            if (!listener.test(puzzle)) {
+                break;
+            }
+            numTaken++;
+        }
+        return numTaken;
+    }
+
+    public Puzzle isomorph(Puzzle seed) throws IllegalArgumentException {
+        return isomorph(seed, new SplittableRandom());
+    }
+
+    public Puzzle isomorph(Puzzle seed, SplittableRandom random) throws IllegalArgumentException {
+        /*
+        A random puzzle equivalent to the seed, with the same difficulty, made by relabelling the
+        digits, shuffling the rows within each band of boxes and the bands themselves, likewise the
+        columns and stacks, and for square boxes transposing half the time. These are the moves
+        which keep every row, column and box together, the reflections and rotations of the
+        symmetry tables among them. A seed for this grid turned on its side, e.g. 2x3 for 3x2, is
+        always transposed.
+         */
+        Grid seedGrid = seed.getGrid();
+        boolean transpose;
+        if (seedGrid.getBoxHeight() == grid.getBoxHeight() && seedGrid.getBoxWidth() == grid.getBoxWidth()) {
+            transpose = grid.getBoxHeight() == grid.getBoxWidth() && random.nextBoolean();
+        } else if (seedGrid.getBoxHeight() == grid.getBoxWidth() && seedGrid.getBoxWidth() == grid.getBoxHeight()) {
+            transpose = true;
+        } else {
+            throw new IllegalArgumentException("The seed puzzle must have boxes the same size as the grid's.");
+        }
+
+        int[] rowOrder = shuffledLines(seedGrid.getBoxHeight(), seedGrid.getBoxWidth(), random);
+        int[] colOrder = shuffledLines(seedGrid.getBoxWidth(), seedGrid.getBoxHeight(), random);
+        int[] cellMap = new int[grid.getNumCells()];
+        for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
+            int seedRow = transpose ? grid.getColNumber(cellIndex) : grid.getRowNumber(cellIndex);
+            int seedCol = transpose ? grid.getRowNumber(cellIndex) : grid.getColNumber(cellIndex);
+            cellMap[cellIndex] = seedGrid.getRowIndices()[rowOrder[seedRow]][colOrder[seedCol]];
+        }
+
+        // digit 0, an empty cell, stays empty
+        int[] digitOrder = shuffledOrder(grid.getNumDigits(), random);
+        int[] digitMap = new int[grid.getNumDigits() + 1];
+        for (int digit = 1; digit <= grid.getNumDigits(); digit++) {
+            digitMap[digit] = digitOrder[digit - 1] + 1;
+        }
+        return seed.isomorph(grid, cellMap, digitMap);
+    }
+
+    private static int[] shuffledLines(int linesPerGroup, int numGroups, SplittableRandom random) {
+        // a random order of the rows (or columns) of a grid, keeping each band (or stack) of
+        // linesPerGroup together
+        int[] groupOrder = shuffledOrder(numGroups, random);
+        int[] lineOrder = new int[linesPerGroup * numGroups];
+        for (int group = 0; group < numGroups; group++) {
+            int[] withinGroup = shuffledOrder(linesPerGroup, random);
+            for (int line = 0; line < linesPerGroup; line++) {
+                lineOrder[group * linesPerGroup + line] = groupOrder[group] * linesPerGroup + withinGroup[line];
+            }
+        }
+        return lineOrder;
+    }
+
+    private static int[] shuffledOrder(int size, SplittableRandom random) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Solver.shuffle(order, random);
+        return order;
+    }
+
+    private static boolean isSteered(Difficulty targetDifficulty) {
+        return targetDifficulty == Difficulty.EASY || targetDifficulty == Difficulty.MEDIUM
+                || targetDifficulty == Difficulty.TRICKY;
+    }
+
+    private boolean isHarderThanTarget(UniquenessOracle oracle, int[] puzzleNums, int[] solution,
+                                       Difficulty targetDifficulty) {
+        // Propagation alone only solves puzzles rated 3 or less, which is at most MEDIUM, or TRICKY
+        // for 2x3, so for those targets and up the far cheaper propagation can often stand in for
+        // the rating.
+        Difficulty propagatedDifficulty = grid.getNumDigits() == 6 ? Difficulty.TRICKY : Difficulty.MEDIUM;
+        if (targetDifficulty.compareTo(propagatedDifficulty) >= 0 && oracle.solvesByPropagation()) {
+            return false;
+        }
+        // the techniques rated higher than the target allows are not worth trying, since a puzzle
+        // which needs them is harder than the target either way
+        Puzzle puzzle = Puzzle.withSolution(grid, puzzleNums, solution);
+        if (puzzle.getRatingUpTo(Puzzle.maxRating(grid, targetDifficulty)) == 0) {
+            return true;
+        }
+        return isHarderThan(puzzle.getDifficulty(), targetDifficulty);
+    }
+
+    private static boolean isHarderThan(Difficulty difficulty, Difficulty targetDifficulty) {
+        return difficulty == Difficulty.TOO_DIFFICULT || difficulty.compareTo(targetDifficulty) > 0;
+    }
+}
@@ -3,6 +3,7 @@ package sudoku.logic;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.StringJoiner;
 import java.util.TreeSet;
 
 /*
@@ -24,6 +25,11 @@ public class Grid {
     private final int[] indexToColNumber;
     private final int[] indexToBoxNumber;
 
+    // the box sizes, as boxHeight x boxWidth, puzzles can be solved and generated for, each of the
+    // rectangular ones also turned on its side
+    private static final int[][] SUPPORTED_BOX_SIZES = {{2, 2}, {2, 3}, {3, 2}, {2, 4}, {4, 2}, {2, 5},
+            {5, 2}, {3, 3}, {3, 4}, {4, 3}, {4, 4}, {5, 5}};
+
     public Grid(int boxHeight, int boxWidth) {
         this.boxHeight = boxHeight;
         this.boxWidth = boxWidth;
@@ -100,6 +106,27 @@ public class Grid {
         }
     }
 
+    public static int[][] getSupportedBoxSizes() {
+        return SUPPORTED_BOX_SIZES;
+    }
+
+    public static boolean isSupported(int boxHeight, int boxWidth) {
+        for (int[] boxSize : SUPPORTED_BOX_SIZES) {
+            if (boxSize[0] == boxHeight && boxSize[1] == boxWidth) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String supportedBoxSizesToString() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int[] boxSize : SUPPORTED_BOX_SIZES) {
+            joiner.add(boxSize[0] + "x" + boxSize[1]);
+        }
+        return joiner.toString();
+    }
+
     public int getBoxHeight() {
         return boxHeight;
     }
@@ -0,0 +1,128 @@
+package sudoku.logic;
+
+/*
+PackedPuzzle holds a solved and rated Puzzle in a fraction of the heap, for pools and caches which keep
+many puzzles at once, and is also how PuzzleBank stores puzzles and generated puzzles are sent with
+format=packed. The puzzle numbers and the solution are each packed bitsPerCell bits a cell, one cell
+after another from the highest bit of each byte: 4 bits for grids of up to 15 digits, two cells to a
+byte, and 5 for the 16x16 and 25x25 grids. A 9x9 puzzle packs into 82 bytes rather than the 648 of its
+two int arrays, and unpacks to exactly the same arrays, rating and difficulty, so it needs neither
+solving nor rating again.
+ */
+public final class PackedPuzzle {
+
+    private final Grid grid;
+    private final byte[] packedPuzzleNums;
+    private final byte[] packedSolution;
+    private final byte rating;
+    private final Difficulty difficulty;
+
+    PackedPuzzle(Grid grid, byte[] packedPuzzleNums, byte[] packedSolution, int rating, Difficulty difficulty) {
+        this.grid = grid;
+        this.packedPuzzleNums = packedPuzzleNums;
+        this.packedSolution = packedSolution;
+        this.rating = (byte) rating;
+        this.difficulty = difficulty;
+    }
+
+    public static PackedPuzzle pack(Puzzle puzzle) throws IllegalArgumentException {
+        // solves and rates the puzzle if it has not been already
+        Difficulty difficulty = puzzle.getDifficulty();
+        if (difficulty == Difficulty.INVALID) {
+            throw new IllegalArgumentException("Only puzzles with a single solution can be packed.");
+        }
+        Grid grid = puzzle.getGrid();
+        return new PackedPuzzle(grid, packCells(puzzle.getPuzzleNums(), grid), packCells(puzzle.getSolution(), grid),
+                puzzle.getRating(), difficulty);
+    }
+
+    public Puzzle unpack() {
+        return Puzzle.withRating(grid, unpackCells(packedPuzzleNums, grid), unpackCells(packedSolution, grid),
+                rating, difficulty);
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public byte[] getPackedPuzzleNums() {
+        return packedPuzzleNums;
+    }
+
+    public byte[] getPackedSolution() {
+        return packedSolution;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public static byte[] packCells(int[] cells, Grid grid) throws IllegalArgumentException {
+        if (cells.length != grid.getNumCells()) {
+            throw new IllegalArgumentException("There must be " + grid.getNumCells() + " cells to pack.");
+        }
+        for (int digit : cells) {
+            if (digit < 0 || digit > grid.getNumDigits()) {
+                throw new IllegalArgumentException("Cells must be 0 or a digit from 1 to " + grid.getNumDigits() + ".");
+            }
+        }
+        byte[] packed = new byte[packedSize(grid)];
+        packCells(cells, bitsPerCell(grid), packed, 0);
+        return packed;
+    }
+
+    public static int[] unpackCells(byte[] packed, Grid grid) throws IllegalArgumentException {
+        if (packed.length != packedSize(grid)) {
+            throw new IllegalArgumentException("There must be " + packedSize(grid) + " packed bytes.");
+        }
+        int[] cells = unpackCells(packed, 0, bitsPerCell(grid), grid.getNumCells());
+        for (int digit : cells) {
+            if (digit > grid.getNumDigits()) {
+                throw new IllegalArgumentException("Cells must be 0 or a digit from 1 to " + grid.getNumDigits() + ".");
+            }
+        }
+        return cells;
+    }
+
+    static int bitsPerCell(Grid grid) {
+        // enough bits for every digit and 0 for an empty cell
+        return grid.getNumDigits() < 16 ? 4 : 5;
+    }
+
+    static int packedSize(Grid grid) {
+        return (grid.getNumCells() * bitsPerCell(grid) + 7) / 8;
+    }
+
+    static void packCells(int[] cells, int bitsPerCell, byte[] packed, int offset) {
+        for (int cellIndex = 0; cellIndex < cells.length; cellIndex++) {
+            int bit = cellIndex * bitsPerCell;
+            // a cell spans at most two bytes, so it is placed within a 16 bit window starting at its
+            // first byte
+            int shift = 16 - bit % 8 - bitsPerCell;
+            int window = cells[cellIndex] << shift;
+            packed[offset + bit / 8] |= (byte) (window >> 8);
+            if (shift < 8) {
+                packed[offset + bit / 8 + 1] |= (byte) window;
+            }
+        }
+    }
+
+    static int[] unpackCells(byte[] packed, int offset, int bitsPerCell, int numCells) {
+        int[] cells = new int[numCells];
+        int mask = (1 << bitsPerCell) - 1;
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            int bit = cellIndex * bitsPerCell;
+            int shift = 16 - bit % 8 - bitsPerCell;
+            int window = (packed[offset + bit / 8] & 0xff) << 8;
+            if (shift < 8) {
+                window |= packed[offset + bit / 8 + 1] & 0xff;
+            }
+            cells[cellIndex] = (window >> shift) & mask;
+        }
+        return cells;
+    }
+}
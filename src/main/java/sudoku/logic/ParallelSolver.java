@@ -0,0 +1,136 @@
+package sudoku.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ParallelSolver spreads the backtracking search of Solver over a ForkJoinPool. The top levels of the
+search tree are split into subtrees, one for each candidate of the cell Solver would branch on, and
+split again while there are idle workers to steal them. Below that each subtree is searched by its
+own Solver. Every search adds to a shared SolutionCounter, so solutions can be counted exactly, or
+up to a limit at which every search stops, e.g. a limit of 1 to find any one solution. A listener
+given to solve is called on the caller's thread, never on the pool's.
+ */
+public class ParallelSolver implements SolverEngine {
+
+    // how deep in the search tree subtrees may still be split off, and how many queued subtrees
+    // a worker may have before it stops splitting and searches its subtree itself
+    private static final int MAX_SPLIT_DEPTH = 12;
+    private static final int MAX_SURPLUS_TASKS = 2;
+
+    private final ForkJoinPool pool;
+    private int[] solution;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public int solve(Puzzle puzzle) {
+        return (int) countSolutions(puzzle, Solver.MAX_SOLUTIONS);
+    }
+
+    public long countSolutions(Puzzle puzzle, long solutionLimit) {
+        // returns the number of solutions, or solutionLimit if there are at least that many, use
+        // Long.MAX_VALUE for an exact count
+        return solve(puzzle, solutionLimit, null);
+    }
+
+    public long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener) {
+        // solutions reach the listener one at a time but in no particular order
+        if (solutionLimit < 1) {
+            throw new IllegalArgumentException("The solution limit must be at least 1.");
+        }
+        SolutionCounter counter = new SolutionCounter(solutionLimit, listener);
+        SubtreeSearch search = new SubtreeSearch(puzzle.getGrid(), Solver.clueCandidates(puzzle), 0, counter);
+        if (counter.passesSolutionsOn()) {
+            // the listener may block, so it is called on this thread rather than by the searches
+            counter.drain(pool.submit(search));
+        } else {
+            pool.invoke(search);
+        }
+        solution = counter.getSolution();
+        return counter.getNumSolutions();
+    }
+
+    public int[] getSolution() {
+        return solution;
+    }
+
+    public int[] generateRandomSolution(Grid grid, SplittableRandom random) {
+        // any solution of the empty puzzle will do, so there is nothing to gain from splitting
+        return new Solver().generateRandomSolution(grid, random);
+    }
+
+    private static class SubtreeSearch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final int[] cellCandidates;
+        private final int depth;
+        private final SolutionCounter counter;
+
+        SubtreeSearch(Grid grid, int[] cellCandidates, int depth, SolutionCounter counter) {
+            this.grid = grid;
+            this.cellCandidates = cellCandidates;
+            this.depth = depth;
+            this.counter = counter;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                search();
+            } finally {
+                if (depth == 0) {
+                    counter.finish();
+                }
+            }
+        }
+
+        private void search() {
+            if (counter.isStopped()) {
+                return;
+            }
+            List<SubtreeSearch> subtrees = new ArrayList<>();
+            Solver solver = Workspaces.leaseSolver(grid);
+            try {
+                if (depth >= MAX_SPLIT_DEPTH || getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+                    solver.search(grid, cellCandidates, counter);
+                    return;
+                }
+
+                int[] propagated = solver.propagateCandidates(grid, cellCandidates);
+                if (propagated == null) {
+                    return;
+                }
+                int nextIndex = Solver.branchingCell(propagated, grid.getNumDigits());
+                if (nextIndex == -1) {
+                    // propagation alone solved this subtree
+                    solver.search(grid, propagated, counter);
+                    return;
+                }
+
+                int nextCandidates = propagated[nextIndex];
+                while (nextCandidates != 0) {
+                    int digitMask = Integer.highestOneBit(nextCandidates);
+                    nextCandidates &= ~digitMask;
+                    int[] subtreeCandidates = propagated.clone();
+                    subtreeCandidates[nextIndex] = digitMask;
+                    subtrees.add(new SubtreeSearch(grid, subtreeCandidates, depth + 1, counter));
+                }
+            } finally {
+                // returned before searching the subtrees, which may run on this thread and want it
+                Workspaces.release(grid, solver);
+            }
+            invokeAll(subtrees);
+        }
+    }
+}
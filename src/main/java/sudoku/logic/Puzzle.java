@@ -4,12 +4,15 @@ import java.util.Arrays;
 
 /*
 Puzzle stores the puzzle numbers, it's rating, difficulty and solution. Initial calls to
-getSolution or getRating trigger solving or rating the puzzle.
+getSolution or getRating trigger solving or rating the puzzle. Solving gives up with a
+DeadlineExceededException if the puzzle's deadline expires first, and can be tried again later.
  */
 public class Puzzle {
 
     private final Grid grid;
     private final int[] puzzleNums;
+    private final String solverEngineName;
+    private final Deadline deadline;
     private int[] solution;
     private int numUnknowns = -1;
     private int numSolutions = -1;
@@ -17,8 +20,64 @@ public class Puzzle {
     private Difficulty difficulty = Difficulty.UNRATED;
 
     public Puzzle(Grid grid, int[] puzzleNums) {
+        this(grid, puzzleNums, null);
+    }
+
+    public Puzzle(Grid grid, int[] puzzleNums, String solverEngineName) {
+        this(grid, puzzleNums, solverEngineName, Deadline.none());
+    }
+
+    public Puzzle(Grid grid, int[] puzzleNums, String solverEngineName, Deadline deadline) {
+        // solverEngineName may be null to use the engine selected for this size of grid
         this.grid = grid;
         this.puzzleNums = Arrays.copyOf(puzzleNums, grid.getNumCells());
+        this.solverEngineName = solverEngineName;
+        this.deadline = deadline;
+    }
+
+    static Puzzle withSolution(Grid grid, int[] puzzleNums, int[] solution) {
+        // for the Generator, which already knows the puzzle's single solution
+        Puzzle puzzle = new Puzzle(grid, puzzleNums);
+        puzzle.solution = solution;
+        puzzle.numSolutions = 1;
+        return puzzle;
+    }
+
+    public Puzzle withSolution(int[] solution) {
+        // The same puzzle, given its single solution found by the caller, e.g. with a solver engine
+        // while looking for more, so rating it needn't solve it again.
+        Puzzle puzzle = new Puzzle(grid, puzzleNums, solverEngineName, deadline);
+        puzzle.solution = solution;
+        puzzle.numSolutions = 1;
+        return puzzle;
+    }
+
+    static Puzzle withRating(Grid grid, int[] puzzleNums, int[] solution, int rating, Difficulty difficulty) {
+        // for PackedPuzzle, which keeps each puzzle's single solution, rating and difficulty
+        Puzzle puzzle = withSolution(grid, puzzleNums, solution);
+        puzzle.rating = rating;
+        puzzle.difficulty = difficulty;
+        return puzzle;
+    }
+
+    Puzzle isomorph(Grid grid, int[] cellMap, int[] digitMap) {
+        // The puzzle with the digits relabelled and the cells moved, new cell i taking the digit in
+        // cell cellMap[i]. As long as the move keeps rows, columns and boxes together, it has the
+        // same number of solutions, rating and difficulty.
+        getDifficulty();
+        int[] isomorphNums = new int[puzzleNums.length];
+        int[] isomorphSolution = new int[puzzleNums.length];
+        for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+            isomorphNums[cellIndex] = digitMap[puzzleNums[cellMap[cellIndex]]];
+            isomorphSolution[cellIndex] = digitMap[solution[cellMap[cellIndex]]];
+        }
+        Puzzle isomorph = new Puzzle(grid, isomorphNums, solverEngineName);
+        isomorph.solution = isomorphSolution;
+        isomorph.numUnknowns = getNumUnknowns();
+        isomorph.numSolutions = numSolutions;
+        isomorph.rating = rating;
+        isomorph.difficulty = difficulty;
+        return isomorph;
     }
 
     public Grid getGrid() {
@@ -43,13 +102,41 @@ public class Puzzle {
 
     public int[] getSolution() {
         if (numSolutions == -1) {
-            Solver solver = new Solver();
-            numSolutions = solver.solve(this);
-            if (numSolutions != 0) {
-                solution = solver.getSolution();
+            String engineName = solverEngineName;
+            if (engineName == null) {
+                engineName = SolverEngines.getSelected(grid.getBoxHeight(), grid.getBoxWidth());
+            }
+            DeadlineListener untilDeadline = new DeadlineListener(deadline);
+            if (engineName.equals(SolverEngines.BACKTRACKING)) {
+                // this thread's Solver for the grid size keeps its arrays for the next puzzle,
+                // including the one holding the solution, so take a copy
+                Solver solver = Workspaces.leaseSolver(grid);
+                try {
+                    int found = (int) solver.solve(this, Solver.MAX_SOLUTIONS, untilDeadline);
+                    // a search stopped part way may have missed solutions
+                    if (untilDeadline.hasStopped()) {
+                        deadline.check();
+                    }
+                    numSolutions = found;
+                    if (numSolutions != 0) {
+                        solution = Arrays.copyOf(solver.getSolution(), grid.getNumCells());
+                    }
+                } finally {
+                    Workspaces.release(grid, solver);
+                }
             } else {
+                SolverEngine solver = SolverEngines.create(engineName);
+                int found = (int) solver.solve(this, Solver.MAX_SOLUTIONS, untilDeadline);
+                if (untilDeadline.hasStopped()) {
+                    deadline.check();
+                }
+                numSolutions = found;
+                if (numSolutions != 0) {
+                    solution = solver.getSolution();
+                }
+            }
+            if (numSolutions == 0) {
                 solution = new int[grid.getNumCells()];
-                Arrays.fill(solution, 0);
             }
         }
         return solution;
@@ -64,11 +151,53 @@ public class Puzzle {
 
     public int getRating() {
         if (rating == -1) {
-            rating = (new PuzzleRater()).rate(this);
+            PuzzleRater rater = Workspaces.leaseRater(grid);
+            try {
+                rating = rater.rate(this);
+            } finally {
+                Workspaces.release(grid, rater);
+            }
         }
         return rating;
     }
 
+    int getRatingUpTo(int maxRating) {
+        // Rates the puzzle using only the techniques rated up to maxRating, for the Generator, which
+        // only needs to know whether a puzzle is harder than its target. A puzzle which needs any
+        // harder technique gets 0, which is not kept as its rating.
+        if (rating == -1) {
+            PuzzleRater rater = Workspaces.leaseRater(grid);
+            try {
+                int ratingUpTo = rater.rate(this, maxRating);
+                if (ratingUpTo != 0) {
+                    rating = ratingUpTo;
+                }
+                return ratingUpTo;
+            } finally {
+                Workspaces.release(grid, rater);
+            }
+        }
+        return rating <= maxRating ? rating : 0;
+    }
+
+    static int maxRating(Grid grid, Difficulty difficulty) {
+        // The highest rating of a puzzle of this size of grid which getDifficulty can find no harder
+        // than the difficulty, so any puzzle rated higher is harder.
+        if (grid.getNumDigits() == 4 || difficulty == Difficulty.FIENDISH) {
+            return Integer.MAX_VALUE;
+        }
+        if (grid.getNumDigits() == 6) {
+            if (difficulty == Difficulty.EASY) {
+                return 1;
+            }
+            return difficulty == Difficulty.MEDIUM ? 2 : Integer.MAX_VALUE;
+        }
+        if (difficulty == Difficulty.EASY) {
+            return 2;
+        }
+        return difficulty == Difficulty.MEDIUM ? 3 : 4;
+    }
+
     public Difficulty getDifficulty() {
         if (difficulty != Difficulty.UNRATED) {
             return difficulty;
@@ -111,7 +240,8 @@ public class Puzzle {
             return difficulty;
         }
 
-        // Cases 2x4, 2x5 and 3x3 are similar:
+        // Cases 2x4, 2x5 and 3x3 are similar, as are the larger grids, although the generator
+        // only makes those up to rating 3:
         if (rating <= 2) {
             difficulty = Difficulty.EASY;
         } else if (rating == 3) {
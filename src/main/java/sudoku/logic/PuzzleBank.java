@@ -0,0 +1,229 @@
+package sudoku.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+/*
+PuzzleBank is a large collection of puzzles, produced offline by the Generator and written with
+write, which is memory-mapped rather than read in, so even millions of puzzles cost next to nothing
+on the heap until one is taken out. The file starts with an index of sections, one for each grid
+size and difficulty, then each section holds fixed size records of:
+
+    the puzzle numbers, packed as by PackedPuzzle
+    the solution, packed the same way
+    the rating, one byte
+    the difficulty, one byte
+    the number of clues, two bytes
+
+Every puzzle is solved and rated as it is written, so a puzzle taken out needs neither.
+ */
+public class PuzzleBank {
+
+    private static final int MAGIC = 0x53554442;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 12;
+    private static final int SECTION_SIZE = 24;
+
+    private final Map<String, Section> sections;
+
+    private static class Section {
+        private final Grid grid;
+        private final Difficulty difficulty;
+        private final int recordSize;
+        private final long count;
+        private final ByteBuffer records;
+
+        private Section(Grid grid, Difficulty difficulty, int recordSize, long count, ByteBuffer records) {
+            this.grid = grid;
+            this.difficulty = difficulty;
+            this.recordSize = recordSize;
+            this.count = count;
+            this.records = records;
+        }
+    }
+
+    private PuzzleBank(Map<String, Section> sections) {
+        this.sections = sections;
+    }
+
+    public static PuzzleBank empty() {
+        return new PuzzleBank(Collections.emptyMap());
+    }
+
+    public static PuzzleBank open(Path path) throws IOException {
+        // Maps each section separately, so only a single section, not the whole file, is limited to
+        // the 2GB a MappedByteBuffer can hold. The mappings stay valid once the channel is closed.
+        Map<String, Section> sections = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is not a puzzle bank.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(path + " is not a puzzle bank, or not version " + VERSION + ".");
+            }
+            int numSections = header.getInt(8);
+            if (numSections < 0 || HEADER_SIZE + (long) numSections * SECTION_SIZE > channel.size()) {
+                throw new IOException(path + " has a bad index.");
+            }
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    (long) numSections * SECTION_SIZE);
+            for (int i = 0; i < numSections; i++) {
+                int position = i * SECTION_SIZE;
+                int boxHeight = index.get(position);
+                int boxWidth = index.get(position + 1);
+                int difficulty = index.get(position + 2);
+                int bitsPerCell = index.get(position + 3);
+                int recordSize = index.getInt(position + 4);
+                long count = index.getLong(position + 8);
+                long offset = index.getLong(position + 16);
+                if (!Grid.isSupported(boxHeight, boxWidth) || difficulty < 0
+                        || difficulty >= Difficulty.values().length || count < 0
+                        || count * recordSize > Integer.MAX_VALUE || offset + count * recordSize > channel.size()) {
+                    throw new IOException(path + " has a bad section " + i + ".");
+                }
+                Grid grid = new Grid(boxHeight, boxWidth);
+                if (bitsPerCell != PackedPuzzle.bitsPerCell(grid) || recordSize != recordSize(grid)) {
+                    throw new IOException(path + " has a bad section " + i + ".");
+                }
+                ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, offset, count * recordSize);
+                Section section = new Section(grid, Difficulty.values()[difficulty], recordSize, count,
+                        records);
+                sections.put(key(boxHeight, boxWidth, section.difficulty), section);
+            }
+        }
+        return new PuzzleBank(sections);
+    }
+
+    public static void write(Path path, Iterable<Puzzle> puzzles) throws IOException, IllegalArgumentException {
+        // Packs the puzzles into sections as they come, a few dozen bytes each, so they need not all
+        // be kept as Puzzles before writing. Only puzzles with a single solution can be banked, and
+        // a duplicate or isomorph of one already banked, by its CanonicalForm fingerprint, is left out.
+        Map<String, ByteArrayOutputStream> packed = new TreeMap<>();
+        Map<String, Puzzle> firsts = new HashMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        Set<Long> fingerprints = new HashSet<>();
+        for (Puzzle puzzle : puzzles) {
+            Difficulty difficulty = puzzle.getDifficulty();
+            if (difficulty == Difficulty.INVALID) {
+                throw new IllegalArgumentException("Only puzzles with a single solution can be banked.");
+            }
+            if (!fingerprints.add(CanonicalForm.fingerprint(puzzle))) {
+                continue;
+            }
+            Grid grid = puzzle.getGrid();
+            String key = key(grid.getBoxHeight(), grid.getBoxWidth(), difficulty);
+            firsts.putIfAbsent(key, puzzle);
+            counts.merge(key, 1L, Long::sum);
+            PackedPuzzle packedPuzzle = PackedPuzzle.pack(puzzle);
+            byte[] record = new byte[recordSize(grid)];
+            int cellsSize = PackedPuzzle.packedSize(grid);
+            System.arraycopy(packedPuzzle.getPackedPuzzleNums(), 0, record, 0, cellsSize);
+            System.arraycopy(packedPuzzle.getPackedSolution(), 0, record, cellsSize, cellsSize);
+            record[2 * cellsSize] = (byte) puzzle.getRating();
+            record[2 * cellsSize + 1] = (byte) difficulty.ordinal();
+            int numClues = grid.getNumCells() - puzzle.getNumUnknowns();
+            record[2 * cellsSize + 2] = (byte) (numClues >> 8);
+            record[2 * cellsSize + 3] = (byte) numClues;
+            packed.computeIfAbsent(key, k -> new ByteArrayOutputStream()).write(record, 0, record.length);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(packed.size());
+            long offset = HEADER_SIZE + (long) packed.size() * SECTION_SIZE;
+            for (String key : packed.keySet()) {
+                Puzzle first = firsts.get(key);
+                Grid grid = first.getGrid();
+                out.writeByte(grid.getBoxHeight());
+                out.writeByte(grid.getBoxWidth());
+                out.writeByte(first.getDifficulty().ordinal());
+                out.writeByte(PackedPuzzle.bitsPerCell(grid));
+                out.writeInt(recordSize(grid));
+                out.writeLong(counts.get(key));
+                out.writeLong(offset);
+                offset += packed.get(key).size();
+            }
+            for (ByteArrayOutputStream section : packed.values()) {
+                section.writeTo(out);
+            }
+        }
+    }
+
+    public long size(int boxHeight, int boxWidth, Difficulty difficulty) {
+        Section section = sections.get(key(boxHeight, boxWidth, difficulty));
+        return section == null ? 0 : section.count;
+    }
+
+    public Puzzle get(int boxHeight, int boxWidth, Difficulty difficulty, long index)
+            throws IndexOutOfBoundsException {
+        Section section = sections.get(key(boxHeight, boxWidth, difficulty));
+        if (section == null || index < 0 || index >= section.count) {
+            throw new IndexOutOfBoundsException("There is no puzzle " + index + " of " + boxHeight + "x"
+                    + boxWidth + " " + difficulty + " in the bank.");
+        }
+        return read(section, (int) (index * section.recordSize));
+    }
+
+    public Puzzle randomPuzzle(int boxHeight, int boxWidth, Difficulty difficulty, SplittableRandom random) {
+        // a puzzle from the bank, or null if it has none of this grid size and difficulty
+        Section section = sections.get(key(boxHeight, boxWidth, difficulty));
+        if (section == null || section.count == 0) {
+            return null;
+        }
+        return read(section, (int) (random.nextLong(section.count) * section.recordSize));
+    }
+
+    public long randomPuzzles(int boxHeight, int boxWidth, Difficulty difficulty, long count, SplittableRandom random,
+                              Predicate<Puzzle> listener) {
+        // Passes up to count puzzles from the bank, in a random order and never the same one twice,
+        // to the listener until it returns false, stopping early once every puzzle of this grid size
+        // and difficulty has been passed. As write leaves out isomorphs, no two are isomorphs of each
+        // other. Returns the number the listener took.
+        Section section = sections.get(key(boxHeight, boxWidth, difficulty));
+        long numPuzzles = section == null ? 0 : Math.min(count, section.count);
+        // a shuffle of the indices stopped after numPuzzles, keeping only the ones it has moved
+        Map<Long, Long> moved = new HashMap<>();
+        for (long n = 0; n < numPuzzles; n++) {
+            long i = n + random.nextLong(section.count - n);
+            long index = moved.getOrDefault(i, i);
+            moved.put(i, moved.getOrDefault(n, n));
+            if (!listener.test(read(section, (int) (index * section.recordSize)))) {
+                return n;
+            }
+        }
+        return numPuzzles;
+    }
+
+    private static Puzzle read(Section section, int position) {
+        // only a duplicate of the buffer is moved, which leaves the shared buffer's position alone,
+        // so any number of threads can read at once
+        int cellsSize = PackedPuzzle.packedSize(section.grid);
+        ByteBuffer record = section.records.duplicate();
+        record.position(position);
+        byte[] packedPuzzleNums = new byte[cellsSize];
+        byte[] packedSolution = new byte[cellsSize];
+        record.get(packedPuzzleNums).get(packedSolution);
+        int rating = record.get();
+        return new PackedPuzzle(section.grid, packedPuzzleNums, packedSolution, rating, section.difficulty).unpack();
+    }
+
+    private static String key(int boxHeight, int boxWidth, Difficulty difficulty) {
+        return boxHeight + "x" + boxWidth + " " + difficulty;
+    }
+
+    private static int recordSize(Grid grid) {
+        return 2 * PackedPuzzle.packedSize(grid) + 4;
+    }
+}
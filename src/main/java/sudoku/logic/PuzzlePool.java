@@ -0,0 +1,280 @@
+package sudoku.logic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+PuzzlePool keeps puzzles ready generated for each grid size and difficulty, so a request can take one
+straight away rather than waiting for the Generator. Each grid size and difficulty has a bucket, made
+on its first request, which is refilled in the background on the given executor up to its high
+watermark whenever it drops to its low watermark. A refill generates a few puzzles at a time and then
+goes to the back of the executor's queue, so the buckets take turns and a slow one, e.g. 5x5 boxes,
+doesn't hold up the rest. The watermarks follow the requests: the pool's capacity is shared out
+between the buckets by their share of recent requests, each bucket getting between the minimum and
+maximum high watermark, with the low watermark half the high one. A take only counts its request
+against its own bucket, the shares are worked out again every so many requests and whenever a bucket
+is made. A maximum high watermark of 0 turns pooling off, every take is then a miss. Puzzles wait in
+the pool packed, in about a quarter of the heap of a Puzzle, and are only unpacked when taken. A
+bucket never holds two puzzles with the same CanonicalForm fingerprint, a duplicate or isomorph of one
+already there is dropped, so the puzzles waiting in a bucket at any one time are all different,
+although one taken may be generated again later.
+ */
+public class PuzzlePool {
+
+    // how many takes there are between working out the watermarks again, and how many puzzles a
+    // refill generates before letting another bucket's refill run
+    private static final int WATERMARK_UPDATE_INTERVAL = 16;
+    static final int REFILL_BATCH_SIZE = 4;
+
+    private final Executor executor;
+    private final int capacity;
+    private final int minHighWatermark;
+    private final int maxHighWatermark;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong numRequests = new AtomicLong();
+    private volatile boolean closed;
+
+    // requests by bucket are counted with a decay, halving every capacity many requests, so the
+    // watermarks follow the recent mix of requests rather than every request since startup
+    private double totalDemand;
+
+    private static class Bucket {
+        private final Grid grid;
+        private final Difficulty difficulty;
+        private final Generator generator;
+        private final Queue<PooledPuzzle> puzzles = new ConcurrentLinkedQueue<>();
+        private final Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final LongAdder newRequests = new LongAdder();
+        private double demand;
+        private volatile int lowWatermark;
+        private volatile int highWatermark;
+        // duplicates generated in a row, only used by the bucket's one refill
+        private int duplicates;
+
+        private Bucket(Grid grid, Difficulty difficulty) {
+            this.grid = grid;
+            this.difficulty = difficulty;
+            generator = new Generator(grid);
+        }
+    }
+
+    private static class PooledPuzzle {
+        // the fingerprint is kept from the refill so taking the puzzle needn't work it out again
+        private final PackedPuzzle packed;
+        private final long fingerprint;
+
+        private PooledPuzzle(PackedPuzzle packed, long fingerprint) {
+            this.packed = packed;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /*
+    The number of puzzles ready in one bucket, its current watermarks, and how many requests it has
+    had and could not serve.
+     */
+    public static class FillLevel {
+        private final int boxHeight;
+        private final int boxWidth;
+        private final Difficulty difficulty;
+        private final int size;
+        private final int lowWatermark;
+        private final int highWatermark;
+        private final long requests;
+        private final long misses;
+
+        private FillLevel(Bucket bucket) {
+            boxHeight = bucket.grid.getBoxHeight();
+            boxWidth = bucket.grid.getBoxWidth();
+            difficulty = bucket.difficulty;
+            size = bucket.size.get();
+            lowWatermark = bucket.lowWatermark;
+            highWatermark = bucket.highWatermark;
+            requests = bucket.requests.get();
+            misses = bucket.misses.get();
+        }
+
+        public int getBoxHeight() {
+            return boxHeight;
+        }
+
+        public int getBoxWidth() {
+            return boxWidth;
+        }
+
+        public Difficulty getDifficulty() {
+            return difficulty;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getLowWatermark() {
+            return lowWatermark;
+        }
+
+        public int getHighWatermark() {
+            return highWatermark;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+    }
+
+    public PuzzlePool(Executor executor, int capacity, int minHighWatermark, int maxHighWatermark)
+            throws IllegalArgumentException {
+        if (capacity < 1 || minHighWatermark < 0 || maxHighWatermark < minHighWatermark) {
+            throw new IllegalArgumentException("The pool capacity must be at least 1 and the high "
+                    + "watermarks must be at least 0, with the minimum no greater than the maximum.");
+        }
+        this.executor = executor;
+        this.capacity = capacity;
+        this.minHighWatermark = minHighWatermark;
+        this.maxHighWatermark = maxHighWatermark;
+    }
+
+    public Puzzle take(int boxHeight, int boxWidth, Difficulty difficulty) {
+        // a ready puzzle, or null if there are none and the caller should generate its own
+        String key = boxHeight + "x" + boxWidth + " " + difficulty;
+        Bucket bucket = buckets.get(key);
+        boolean isNew = bucket == null;
+        if (isNew) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(new Grid(boxHeight, boxWidth), difficulty));
+        }
+        bucket.requests.incrementAndGet();
+        bucket.newRequests.increment();
+        if (numRequests.incrementAndGet() % WATERMARK_UPDATE_INTERVAL == 0 || isNew) {
+            updateWatermarks();
+        }
+
+        PooledPuzzle pooled = bucket.puzzles.poll();
+        Puzzle puzzle = null;
+        if (pooled == null) {
+            bucket.misses.incrementAndGet();
+        } else {
+            puzzle = pooled.packed.unpack();
+            bucket.fingerprints.remove(pooled.fingerprint);
+            bucket.size.decrementAndGet();
+        }
+        if (bucket.size.get() <= bucket.lowWatermark) {
+            refill(bucket);
+        }
+        return puzzle;
+    }
+
+    public List<FillLevel> getFillLevels() {
+        List<FillLevel> fillLevels = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            fillLevels.add(new FillLevel(bucket));
+        }
+        fillLevels.sort(Comparator.comparingInt(FillLevel::getBoxHeight)
+                .thenComparingInt(FillLevel::getBoxWidth)
+                .thenComparing(FillLevel::getDifficulty));
+        return fillLevels;
+    }
+
+    public void close() {
+        // stop refilling, any puzzle being generated is finished but not kept
+        closed = true;
+    }
+
+    private synchronized void updateWatermarks() {
+        // adds the requests each bucket has had since last time to its demand and shares out the
+        // capacity again, there are only a few dozen buckets
+        for (Bucket bucket : buckets.values()) {
+            long newRequests = bucket.newRequests.sumThenReset();
+            bucket.demand += newRequests;
+            totalDemand += newRequests;
+        }
+        boolean decay = totalDemand >= 2 * capacity;
+        if (decay) {
+            totalDemand /= 2;
+        }
+        for (Bucket bucket : buckets.values()) {
+            if (decay) {
+                bucket.demand /= 2;
+            }
+            int highWatermark = (int) Math.round(capacity * bucket.demand / totalDemand);
+            bucket.highWatermark = Math.max(minHighWatermark, Math.min(maxHighWatermark, highWatermark));
+            bucket.lowWatermark = bucket.highWatermark / 2;
+        }
+    }
+
+    private void refill(Bucket bucket) {
+        // at most one refill runs for each bucket at a time, so each bucket's Generator is only ever
+        // used by one thread at once
+        if (closed || bucket.size.get() >= bucket.highWatermark || !bucket.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        bucket.duplicates = 0;
+        submitRefill(bucket);
+    }
+
+    private void submitRefill(Bucket bucket) {
+        try {
+            executor.execute(() -> refillBatch(bucket));
+        } catch (RejectedExecutionException ex) {
+            bucket.refilling.set(false);
+        }
+    }
+
+    private void refillBatch(Bucket bucket) {
+        // a grid size and difficulty with few puzzles, e.g. 2x2 boxes, may not have enough different
+        // ones to fill the bucket, so give up after too many duplicates in a row
+        boolean unfinished = false;
+        try {
+            for (int n = 0; n < REFILL_BATCH_SIZE && !isRefillDone(bucket); n++) {
+                Puzzle puzzle = bucket.generator.generatePuzzle(bucket.difficulty);
+                if (closed) {
+                    break;
+                }
+                long fingerprint = CanonicalForm.fingerprint(puzzle);
+                if (!bucket.fingerprints.add(fingerprint)) {
+                    bucket.duplicates++;
+                    continue;
+                }
+                bucket.duplicates = 0;
+                bucket.puzzles.add(new PooledPuzzle(PackedPuzzle.pack(puzzle), fingerprint));
+                bucket.size.incrementAndGet();
+            }
+            unfinished = !isRefillDone(bucket);
+        } finally {
+            if (!unfinished) {
+                bucket.refilling.set(false);
+            }
+        }
+        if (unfinished) {
+            // still refilling, but behind any other bucket's refill waiting to run
+            submitRefill(bucket);
+        } else if (bucket.duplicates < Generator.MAX_DUPLICATES && bucket.size.get() <= bucket.lowWatermark) {
+            // the bucket may have been emptied while this refill was finishing
+            refill(bucket);
+        }
+    }
+
+    private boolean isRefillDone(Bucket bucket) {
+        return closed || bucket.size.get() >= bucket.highWatermark || bucket.duplicates >= Generator.MAX_DUPLICATES;
+    }
+}
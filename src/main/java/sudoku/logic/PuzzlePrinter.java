@@ -95,6 +95,21 @@ class PuzzlePrinter {
         return genericGridToString(grid, finalCellWidth, i -> multiValueCell(finalCellWidth, i, candidatesArray));
     }
 
+    public static String candidatesMasksToString(Grid grid, int[] candidateMasks) {
+        // Candidates stored as bitmasks, bit (digit - 1) set when digit is a candidate.
+        int[][] candidates = new int[grid.getNumCells()][grid.getNumDigits() + 1];
+        for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
+            int j = 1;
+            for (int digit = 1; digit <= grid.getNumDigits(); digit++) {
+                if ((candidateMasks[cellIndex] & (1 << (digit - 1))) != 0) {
+                    candidates[cellIndex][j++] = digit;
+                }
+            }
+            candidates[cellIndex][0] = j - 1;
+        }
+        return candidatesArrayToString(grid, candidates);
+    }
+
     public static String candidatesSetsToString(Grid grid, List<Set<Integer>> candidateSets) {
         int[][] candidates = new int[grid.getNumCells()][grid.getNumDigits() + 1];
         for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
@@ -3,8 +3,8 @@ package sudoku.logic;
 import java.util.*;
 
 /*
-PuzzleRater rates a puzzle from 0-6. The current approach is rather primitive. A sequence of
-methods are applied which resemble the techniques people use to solve puzzles. The rating
+PuzzleRater rates a puzzle from 0-8. The current approach is rather primitive. A pipeline of
+Technique steps is applied, each resembling a technique people use to solve puzzles. The rating
 corresponds to the most difficult technique required. The techniques, by rating, are:
 1 - Last Digit in a Box/Row/Column, Sole Location in a Box.
 2 - Sole Location in a Row/Column.
@@ -12,15 +12,17 @@ corresponds to the most difficult technique required. The techniques, by rating,
 4 - Naked Pair, Naked Triple.
 5 - Hidden Pair, Hidden Triple.
 6 - Naked Quad, Hidden Quad.
+7 - Intersection Removal - Pointing, Box/Line Reduction.
+8 - X-Wing.
+The last two are easier for people than some of those before them, but are only tried once the rest
+have all failed, so a puzzle the rest can solve is rated as it was before they were added.
 Any puzzle still unsolved is rated 0.
 A log can be produced which correspond to step-by-step instructions for solving a puzzle.
+The TechniqueStatistics of each rating count what each technique tried and found, and time them.
 
 TODO:
 Add techniques:
-  intersection removal - box/row and box/col interactions
   box/box interactions
-  x-wing
-Factor out each technique - strategy pattern
 Rate based on how often each technique required
  */
 class PuzzleRater {
@@ -29,138 +31,160 @@ class PuzzleRater {
     private int numCells;
     private int numDigits;
     private boolean usingCandidates;
-    private List<Set<Integer>> candidateSets;
+    // each cell's candidates as a bitmask, bit digit - 1 for each digit, as in Solver
+    private int[] candidates;
     private int[] partialSolution;
+    private int numUnsolved;
+    // the candidates removed so far, not counting those ruled out when candidates are first worked out
+    private int eliminations;
+    // the digits solved so far in each row, column and box, as bitmasks like the candidates
+    private int[] rowDigits;
+    private int[] colDigits;
+    private int[] boxDigits;
+    // for intersection removal, the candidates of a box's empty cells in each of its rows and columns
+    private int[] rowSegments;
+    private int[] colSegments;
+    // for x-wings, the columns of each row, and the rows of each column, where each digit is a
+    // candidate, as bitmasks at digit * numDigits + row (or column)
+    private int[] rowPositions;
+    private int[] colPositions;
+    // for naked and hidden sets, the combinations of each number of cells or digits, and for those
+    // being searched, each cell's candidates and block position, or each digit's cells and digit
+    private Combinations[] combinations;
+    private int[] setItems;
+    private int[] setItemIndices;
+    private final Technique[] pipeline;
+    private final TechniqueStatistics statistics = new TechniqueStatistics();
     //private final List<String> solutionLog;
     //private int verbosity = 0;  // 0, 1 or 2.
 
     public PuzzleRater() {
+        this(Technique.values());
+    }
+
+    public PuzzleRater(Technique... pipeline) {
+        // the techniques to try, easiest first
+        this.pipeline = pipeline.clone();
         //solutionLog = new ArrayList<>();
     }
 
     public int rate(Puzzle puzzle) {
+        return rate(puzzle, Integer.MAX_VALUE);
+    }
+
+    public int rate(Puzzle puzzle, int maxRating) {
+        // only tries the techniques rated up to maxRating, so a puzzle which needs any harder is
+        // rated 0
         this.puzzle = puzzle;
         numCells = puzzle.getGrid().getNumCells();
         numDigits = puzzle.getGrid().getNumDigits();
         //solutionLog.clear();
         usingCandidates = false;
-        partialSolution = Arrays.copyOf(puzzle.getPuzzleNums(), numCells);
+        setWorkspace();
+        System.arraycopy(puzzle.getPuzzleNums(), 0, partialSolution, 0, numCells);
+        Arrays.fill(rowDigits, 0);
+        Arrays.fill(colDigits, 0);
+        Arrays.fill(boxDigits, 0);
+        numUnsolved = 0;
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            if (partialSolution[cellIndex] != 0) {
+                addSolvedDigit(cellIndex, partialSolution[cellIndex]);
+            } else {
+                numUnsolved++;
+            }
+        }
+        eliminations = 0;
+        statistics.startRating();
+        boolean timed = TechniqueStatistics.isCollecting();
         int difficultyScore = 1;
 
+        pipeline:
         while (!isSolved()) {
-
-            //logMethod("Last Digit in a Box");
-            if (lastDigitInABlock(puzzle.getGrid().getBoxIndices())) {
-                continue;
-            }
-            //logMethod("Last Digit in a Row");
-            if (lastDigitInABlock(puzzle.getGrid().getRowIndices())) {
-                continue;
-            }
-            //logMethod("Last Digit in a Column");
-            if (lastDigitInABlock(puzzle.getGrid().getColIndices())) {
-                continue;
-            }
-
-            //logMethod("Sole Location in a Box");
-            if (soleLocationInABlock(puzzle.getGrid().getBoxIndices())) {
-                continue;
-            }
-
-            //logMethod("Sole Location in a Row");
-            if (soleLocationInABlock(puzzle.getGrid().getRowIndices())) {
-                difficultyScore = Integer.max(2, difficultyScore);
-                continue;
-            }
-            //logMethod("Sole Location in a Column");
-            if (soleLocationInABlock(puzzle.getGrid().getColIndices())) {
-                difficultyScore = Integer.max(2, difficultyScore);
-                continue;
-            }
-
-            //logMethod("Sole Digit");
-            if (soleDigit()) {
-                difficultyScore = Integer.max(3, difficultyScore);
-                continue;
-            }
-
-            // start using candidates
-            if (!usingCandidates) {
-                //logMethod("Using Candidates");
-                generateCandidates();
-                usingCandidates = true;
-            }
-
-            // these two methods never find anything in the first pass, i.e. unless later methods have
-            // changed the candidates these are the same as soleDigit and soleLocationInABlock
-
-            //logMethod("Sole Candidate");
-            if (soleCandidate()) {
-                continue;
-            }
-            //logMethod("Sole Location");
-            if (soleLocation()) {
-                continue;
-            }
-
-            //logMethod("Naked Pair");
-            if (nakedSets(2)) {
-                difficultyScore = Integer.max(4, difficultyScore);
-                continue;
-            }
-            //logMethod("Naked Triple");
-            if (nakedSets(3)) {
-                difficultyScore = Integer.max(4, difficultyScore);
-                continue;
-            }
-
-            //logMethod("Hidden Pair");
-            if (hiddenSets(2)) {
-                difficultyScore = Integer.max(5, difficultyScore);
-                continue;
-            }
-            //logMethod("Hidden Triple");
-            if (hiddenSets(3)) {
-                difficultyScore = Integer.max(5, difficultyScore);
-                continue;
-            }
-
-            //logMethod("Naked Quad");
-            if (nakedSets(4)) {
-                difficultyScore = Integer.max(6, difficultyScore);
-                continue;
-            }
-            //logMethod("Hidden Quad");
-            if (hiddenSets(4)) {
-                difficultyScore = Integer.max(6, difficultyScore);
-                continue;
+            for (Technique technique : pipeline) {
+                if (technique.getRating() > maxRating) {
+                    continue;
+                }
+                //logMethod(technique.getName());
+                if (apply(technique, timed)) {
+                    difficultyScore = Integer.max(technique.getRating(), difficultyScore);
+                    continue pipeline;
+                }
             }
-
             break;
         }
         if (!isSolved()) {
             difficultyScore = 0;
         }
+        if (timed) {
+            TechniqueStatistics.accumulate(statistics);
+        }
         //solutionLog.add("The difficulty score is " + difficultyScore);
         return difficultyScore;
     }
 
+    private boolean apply(Technique technique, boolean timed) {
+        int unsolvedBefore = numUnsolved;
+        int eliminationsBefore = eliminations;
+        long before = timed ? System.nanoTime() : 0;
+        if (technique.usesCandidates() && !usingCandidates) {
+            generateCandidates();
+            usingCandidates = true;
+        }
+        boolean altered = technique.apply(this, puzzle.getGrid());
+        long nanos = timed ? System.nanoTime() - before : 0;
+        statistics.record(technique, altered, unsolvedBefore - numUnsolved, eliminations - eliminationsBefore, nanos);
+        return altered;
+    }
+
+    private void setWorkspace() {
+        // The arrays are only made when the size of grid changes, so a PuzzleRater can rate any
+        // number of puzzles of the same size without making new ones.
+        if (partialSolution != null && partialSolution.length == numCells) {
+            return;
+        }
+        partialSolution = new int[numCells];
+        rowDigits = new int[numDigits];
+        colDigits = new int[numDigits];
+        boxDigits = new int[numDigits];
+        candidates = new int[numCells];
+        rowSegments = new int[numDigits];
+        colSegments = new int[numDigits];
+        rowPositions = new int[numCells];
+        colPositions = new int[numCells];
+        combinations = new Combinations[numDigits + 1];
+        setItems = new int[numDigits];
+        setItemIndices = new int[numDigits];
+    }
+
     private boolean isSolved() {
-        return Arrays.equals(partialSolution, puzzle.getSolution());
+        // only worth comparing once every cell is filled in
+        return numUnsolved == 0 && Arrays.equals(partialSolution, puzzle.getSolution());
     }
 
     public int[] getPartialSolution() {
         return partialSolution;
     }
 
-    private boolean lastDigitInABlock(int[][] blocks) {
+    public TechniqueStatistics getStatistics() {
+        // the statistics of the last rating, timed only if collecting was switched on
+        return statistics;
+    }
+
+    private int possibleDigits(int cellIndex) {
+        // the digits not yet solved in any of the cell's row, column or box
+        Grid grid = puzzle.getGrid();
+        return ((1 << numDigits) - 1) & ~(rowDigits[grid.getRowNumber(cellIndex)]
+                | colDigits[grid.getColNumber(cellIndex)] | boxDigits[grid.getBoxNumber(cellIndex)]);
+    }
+
+    boolean lastDigitInABlock(int[][] blocks) {
         // aka: last number in a block, open singles.
         // Look at each block. For a given block, if all but one cell is already solved then we
         // can easily determine which digit goes in the last cell.
         boolean altered = false;
-        boolean[] seenDigit = new boolean[numDigits + 1];
+        int allDigits = (1 << numDigits) - 1;
         for (int[] block : blocks) {
-            Arrays.fill(seenDigit, false);
+            int seenDigits = 0;
             int emptyCellIndex = -1;
             boolean foundOneEmptyCell = false;
             for (int cellIndex : block) {
@@ -173,23 +197,18 @@ class PuzzleRater {
                         emptyCellIndex = cellIndex;
                     }
                 } else {
-                    seenDigit[partialSolution[cellIndex]] = true;
+                    seenDigits |= Solver.digitMask(partialSolution[cellIndex]);
                 }
             }
-            if (foundOneEmptyCell) {
-                for (int digit = 1; digit <= numDigits; digit++) {
-                    if (!seenDigit[digit]) {
-                        handleSolvedCell(emptyCellIndex, digit);
-                        altered = true;
-                        break;
-                    }
-                }
+            if (foundOneEmptyCell && seenDigits != allDigits) {
+                handleSolvedCell(emptyCellIndex, Integer.numberOfTrailingZeros(~seenDigits) + 1);
+                altered = true;
             }
         }
         return altered;
     }
 
-    private boolean soleLocationInABlock(int[][] blocks) {
+    boolean soleLocationInABlock(int[][] blocks) {
         // aka: last remaining cell in a box/row/column, visual elimination, unique candidate,
         //      single position, hidden single (without use of candidates), pinned digit,
         //      last location
@@ -199,48 +218,36 @@ class PuzzleRater {
         // solved, but also ruled out if the digit in question appears in the group of neighbouring
         // cells in other blocks since the digit can only appear once in a block.
         for (int[] block : blocks) {
-            for (int digit = 1; digit <= numDigits; digit++) {
-                boolean testThisDigit = true;
-                for (int cellIndex : block) {
-                    if (partialSolution[cellIndex] == digit) {
-                        testThisDigit = false;
-                        break;
-                    }
-                }
-                if (!testThisDigit) {
-                    continue;
+            // the digits already in the block, and those possible in one of its empty cells, and
+            // in more than one
+            int solvedDigits = 0;
+            int possibleOnce = 0;
+            int possibleTwice = 0;
+            for (int cellIndex : block) {
+                if (partialSolution[cellIndex] == 0) {
+                    int possible = possibleDigits(cellIndex);
+                    possibleTwice |= possibleOnce & possible;
+                    possibleOnce |= possible;
+                } else {
+                    solvedDigits |= Solver.digitMask(partialSolution[cellIndex]);
                 }
-                int soleLocationIndex = -1;
+            }
+            int soleLocations = possibleOnce & ~possibleTwice & ~solvedDigits;
+            if (soleLocations != 0) {
+                // the lowest such digit
+                int digitMask = Integer.lowestOneBit(soleLocations);
                 for (int cellIndex : block) {
-                    boolean foundPossibleSoleLocation = true;
-                    if (partialSolution[cellIndex] == 0) {
-                        int[][] allNeighbours = puzzle.getGrid().getNeighbours();
-                        for (int neighbourIndex : allNeighbours[cellIndex]) {
-                            if (partialSolution[neighbourIndex] == digit) {
-                                foundPossibleSoleLocation = false;
-                                break;
-                            }
-                        }
-                        if (foundPossibleSoleLocation) {
-                            if (soleLocationIndex == -1) {
-                                soleLocationIndex = cellIndex;
-                            } else {
-                                soleLocationIndex = -1;
-                                break;
-                            }
-                        }
+                    if (partialSolution[cellIndex] == 0 && (possibleDigits(cellIndex) & digitMask) != 0) {
+                        handleSolvedCell(cellIndex, Integer.numberOfTrailingZeros(digitMask) + 1);
+                        return true;
                     }
                 }
-                if (soleLocationIndex != -1) {
-                    handleSolvedCell(soleLocationIndex, digit);
-                    return true;
-                }
             }
         }
         return false;
     }
 
-    private boolean soleDigit() {
+    boolean soleDigit() {
         // aka: last possible number, sole candidate, single candidate, forced digit, naked single,
         //      lone single
         // For a given unsolved cell, consider all the digits that might go there. A digit can be
@@ -248,28 +255,9 @@ class PuzzleRater {
         // ruling digits out only one remains, it must go in that cell.
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
             if (partialSolution[cellIndex] == 0) {
-                boolean[] possibleSoleDigits = new boolean[numDigits + 1];
-                Arrays.fill(possibleSoleDigits, true);
-                int[][] allNeighbours = puzzle.getGrid().getNeighbours();
-                for (int neighbourIndex : allNeighbours[cellIndex]) {
-                    if (partialSolution[neighbourIndex] != 0) {
-                        possibleSoleDigits[partialSolution[neighbourIndex]] = false;
-                    }
-                }
-                int soleDigit = -1;
-                for (int digit = 1; digit <= numDigits; digit++) {
-                    if (possibleSoleDigits[digit]) {
-                        if (soleDigit == -1) {
-
-                            soleDigit = digit;
-                        } else {
-                            soleDigit = -1;
-                            break;
-                        }
-                    }
-                }
-                if (soleDigit != -1) {
-                    handleSolvedCell(cellIndex, soleDigit);
+                int possible = possibleDigits(cellIndex);
+                if (Integer.bitCount(possible) == 1) {
+                    handleSolvedCell(cellIndex, Integer.numberOfTrailingZeros(possible) + 1);
                     return true;
                 }
             }
@@ -281,22 +269,16 @@ class PuzzleRater {
         // aka: pencil marks
         // Each unsolved cell can be considered to have a set of candidate solutions, initially
         // all digits from 1 to numDigits.
-        candidateSets = new ArrayList<>(numCells);
+        int allDigits = (1 << numDigits) - 1;
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            Set<Integer> cellCandidateSet;
             if (partialSolution[cellIndex] == 0) {
-                cellCandidateSet = new HashSet<>(numDigits);
-                for (int digit = 1; digit <= numDigits; digit++) {
-                    cellCandidateSet.add(digit);
-                }
+                candidates[cellIndex] = allDigits;
             } else {
-                cellCandidateSet = new HashSet<>(1);
-                cellCandidateSet.add(partialSolution[cellIndex]);
+                candidates[cellIndex] = Solver.digitMask(partialSolution[cellIndex]);
             }
-            candidateSets.add(cellIndex, cellCandidateSet);
         }
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            if (candidateSets.get(cellIndex).size() == 1) {
+            if (Integer.bitCount(candidates[cellIndex]) == 1) {
                 constrainCandidates(cellIndex);
             }
         }
@@ -306,20 +288,22 @@ class PuzzleRater {
         // aka: candidate elimination
         // If a cell is solved, the digit it contains can be removed from the candidates of any
         // neighbouring (i.e. in the same block, row or column) cell.
-        int solvedDigit = partialSolution[cellIndex];
-        Set<Integer> cellCandidateSet = new HashSet<>(1);
-        cellCandidateSet.add(solvedDigit);
-        candidateSets.set(cellIndex, cellCandidateSet);
+        int solvedDigit = Solver.digitMask(partialSolution[cellIndex]);
+        candidates[cellIndex] = solvedDigit;
         // remove the solved digit from candidates of all neighbouring cells
         int[][] allNeighbours = puzzle.getGrid().getNeighbours();
         for (int neighbourIndex : allNeighbours[cellIndex]) {
-            if (candidateSets.get(neighbourIndex).remove(solvedDigit)) {
+            if ((candidates[neighbourIndex] & solvedDigit) != 0) {
+                candidates[neighbourIndex] &= ~solvedDigit;
+                if (usingCandidates) {
+                    eliminations++;
+                }
                 //logCandidatesChange(neighbourIndex, partialSolution[cellIndex]);
             }
         }
     }
 
-    private boolean soleCandidate() {
+    boolean soleCandidate() {
         // aka: last possible number, sole digit, single candidate, forced digit, naked single,
         //      lone single
         // This technique differs from soleDigit above in that it can now leverage information
@@ -329,9 +313,9 @@ class PuzzleRater {
         // For a given unsolved cell, if there is only one candidate remaining then that candidate
         // must go in the solution for that cell.
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            if (candidateSets.get(cellIndex).size() == 1) {
+            if (Integer.bitCount(candidates[cellIndex]) == 1) {
                 if (partialSolution[cellIndex] == 0) {
-                    handleSolvedCell(cellIndex, candidateSets.get(cellIndex).iterator().next());
+                    handleSolvedCell(cellIndex, Integer.numberOfTrailingZeros(candidates[cellIndex]) + 1);
                     return true;
                 }
             }
@@ -339,7 +323,7 @@ class PuzzleRater {
         return false;
     }
 
-    private boolean soleLocation() {
+    boolean soleLocation() {
         // aka: hidden single, unique candidate, single position, last location
         // This technique differs from soleLocationInABlock above in that it can now leverage
         // information from the candidates for each unsolved cell rather than only using the
@@ -348,46 +332,74 @@ class PuzzleRater {
         // For a given block, looking at each cell's candidates, if a digit only appears in one of
         // those candidate lists across all cells, that digit must be the solution for that cell.
         for (int[] block : puzzle.getGrid().getBlockIndices()) {
-            int[] soleLocationIndices = new int[numDigits + 1];
-            boolean[] soleLocationFound = new boolean[numDigits + 1];
-            Arrays.fill(soleLocationIndices, -1);
-            Arrays.fill(soleLocationFound, true);
+            // the digits which are candidates of at least one cell, of more than one, and the
+            // digits of cells with a single candidate, which are not hidden
+            int seenOnce = 0;
+            int seenTwice = 0;
+            int singles = 0;
             for (int cellIndex : block) {
-                if (candidateSets.get(cellIndex).size() == 1) {
-                    soleLocationFound[candidateSets.get(cellIndex).iterator().next()] = false;
-                }
-                for (Integer candidate : candidateSets.get(cellIndex)) {
-                    if (soleLocationIndices[candidate] == -1) {
-                        soleLocationIndices[candidate] = cellIndex;
-                    } else {
-                        soleLocationFound[candidate] = false;
-                    }
+                int cellCandidates = candidates[cellIndex];
+                if (Integer.bitCount(cellCandidates) == 1) {
+                    singles |= cellCandidates;
                 }
+                seenTwice |= seenOnce & cellCandidates;
+                seenOnce |= cellCandidates;
             }
 
-            for (int digit = 1; digit <= numDigits; digit++) {
-                if (soleLocationFound[digit]) {
-                    handleSolvedCell(soleLocationIndices[digit], digit);
-                    return true;
+            int soleLocations = seenOnce & ~seenTwice & ~singles;
+            if (soleLocations != 0) {
+                // the lowest such digit
+                int digitMask = Integer.lowestOneBit(soleLocations);
+                for (int cellIndex : block) {
+                    if ((candidates[cellIndex] & digitMask) != 0) {
+                        handleSolvedCell(cellIndex, Integer.numberOfTrailingZeros(digitMask) + 1);
+                        return true;
+                    }
                 }
             }
         }
         return false;
     }
 
-    private boolean nakedSets(int size) {
-        int[][] blocks = puzzle.getGrid().getBlockIndices();
-        for (int[] block : blocks) {
-            if (setInBlock(new ArrayDeque<>(), new HashSet<>(), block, 0, size)) {
-                return true;
+    boolean nakedSets(int size) {
+        // aka: naked pairs, naked triples, naked quads, locked sets
+        // Look at each block. If size of its cells have only size candidates between them, those
+        // digits must go in those cells, so they can be removed from the candidates of the block's
+        // other cells. The items of the combinations searched are the cells with from 2 up to size
+        // candidates.
+        for (int[] block : puzzle.getGrid().getBlockIndices()) {
+            int numItems = 0;
+            for (int i = 0; i < block.length; i++) {
+                int numCandidates = Integer.bitCount(candidates[block[i]]);
+                if (numCandidates > 1 && numCandidates <= size) {
+                    setItems[numItems] = candidates[block[i]];
+                    setItemIndices[numItems] = i;
+                    numItems++;
+                }
+            }
+            if (numItems < size) {
+                continue;
+            }
+            Combinations itemCombinations = combinations(numItems);
+            int[] sets = itemCombinations.getMasks(size);
+            for (int i = itemCombinations.nextSet(size, 0, setItems); i != -1;
+                 i = itemCombinations.nextSet(size, i + 1, setItems)) {
+                if (constrainUsingSet(block, indices(sets[i]), union(sets[i]))) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
-    private boolean hiddenSets(int size) {
-        int[][] blocks = puzzle.getGrid().getBoxIndices();
-        for (int[] block : blocks) {
+    boolean hiddenSets(int size) {
+        // aka: hidden pairs, hidden triples, hidden quads
+        // Look at each box. If size of its digits are candidates of only size cells between them,
+        // those digits must go in those cells, so the cells' other candidates can be removed. The
+        // items of the combinations searched are the digits not yet solved in the box, each with
+        // the cells where it is a candidate.
+        Grid grid = puzzle.getGrid();
+        for (int[] block : grid.getBoxIndices()) {
             int countEmpty = 0;
             for (int cellIndex : block) {
                 if (partialSolution[cellIndex] == 0) {
@@ -395,63 +407,283 @@ class PuzzleRater {
                 }
             }
 
-            int nakedSetSize = countEmpty - size;
-            if (nakedSetSize <= 3) {
+            // the rest of the box's empty cells are a naked set of countEmpty - size cells, and those
+            // of up to 3 cells have been looked for already
+            if (countEmpty - size <= 3) {
                 continue;
             }
 
-            if (setInBlock(new ArrayDeque<>(), new HashSet<>(), block, 0, nakedSetSize)) {
-                return true;
+            int numItems = 0;
+            int unsolvedDigits = ((1 << numDigits) - 1) & ~boxDigits[grid.getBoxNumber(block[0])];
+            for (int digits = unsolvedDigits; digits != 0; digits &= digits - 1) {
+                int digit = Integer.numberOfTrailingZeros(digits);
+                int cells = 0;
+                for (int i = 0; i < block.length; i++) {
+                    if (partialSolution[block[i]] == 0 && (candidates[block[i]] & (1 << digit)) != 0) {
+                        cells |= 1 << i;
+                    }
+                }
+                setItems[numItems] = cells;
+                setItemIndices[numItems] = digit;
+                numItems++;
+            }
+            Combinations itemCombinations = combinations(numItems);
+            int[] sets = itemCombinations.getMasks(size);
+            for (int i = itemCombinations.nextSet(size, 0, setItems); i != -1;
+                 i = itemCombinations.nextSet(size, i + 1, setItems)) {
+                if (constrainHiddenSet(block, union(sets[i]), indices(sets[i]))) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
-    private boolean setInBlock(Deque<Integer> cellIndices, Set<Integer> digits,
-                               int[] block, int startingIndex, int size) {
+    private Combinations combinations(int numItems) {
+        if (combinations[numItems] == null) {
+            combinations[numItems] = Combinations.of(numItems);
+        }
+        return combinations[numItems];
+    }
+
+    private int union(int items) {
+        // the union of the masks of the set's items
+        int union = 0;
+        for (; items != 0; items &= items - 1) {
+            union |= setItems[Integer.numberOfTrailingZeros(items)];
+        }
+        return union;
+    }
 
-        if (cellIndices.size() == size) {
-            return constrainUsingSet(cellIndices, digits, block);
+    private int indices(int items) {
+        // the set's items as a mask of their block positions, or digits
+        int indices = 0;
+        for (; items != 0; items &= items - 1) {
+            indices |= 1 << setItemIndices[Integer.numberOfTrailingZeros(items)];
         }
+        return indices;
+    }
 
-        for (int i = startingIndex; i < block.length; i++) {
-            int cellIndex = block[i];
-            Set<Integer> currentSet = candidateSets.get(cellIndex);
-            if (currentSet.size() > 1 && currentSet.size() <= size) {
-                Set<Integer> unionSet = new HashSet<>();
-                unionSet.addAll(digits);
-                unionSet.addAll(currentSet);
-                if (unionSet.size() <= size) {
-                    cellIndices.push(cellIndex);
-                    if (setInBlock(cellIndices, unionSet, block, i + 1, size)) {
-                        return true;
-                    }
-                    cellIndices.pop();
+    private boolean constrainHiddenSet(int[] block, int setPositions, int digits) {
+        //logCandidatesSetFound(block, setPositions, digits);
+        boolean altered = false;
+        for (int positions = setPositions; positions != 0; positions &= positions - 1) {
+            altered |= removeCandidates(block[Integer.numberOfTrailingZeros(positions)], ~digits);
+        }
+        return altered;
+    }
+
+    private boolean constrainUsingSet(int[] block, int setPositions, int digits) {
+        //logCandidatesSetFound(block, setPositions, digits);
+        boolean altered = false;
+        for (int i = 0; i < block.length; i++) {
+            if ((setPositions & (1 << i)) != 0) {
+                continue;
+            }
+            altered |= removeCandidates(block[i], digits);
+        }
+        return altered;
+    }
+
+    boolean pointing() {
+        // aka: pointing pairs, pointing triples, locked candidates (pointing), box/line interaction
+        // Look at each box. If the candidates for a digit within the box all lie in one row (or
+        // column), the digit must go in that row within the box, so it can be removed from the
+        // candidates of the rest of the row outside the box.
+        Grid grid = puzzle.getGrid();
+        int boxHeight = grid.getBoxHeight();
+        int boxWidth = grid.getBoxWidth();
+        for (int[] box : grid.getBoxIndices()) {
+            boxSegments(box, boxHeight, boxWidth);
+            int top = grid.getRowNumber(box[0]);
+            int left = grid.getColNumber(box[0]);
+            int inMoreThanOneRow = inMoreThanOneSegment(rowSegments, boxHeight);
+            for (int i = 0; i < boxHeight; i++) {
+                int pointingDigits = rowSegments[i] & ~inMoreThanOneRow;
+                if (pointingDigits != 0
+                        && removeOutsideBox(grid.getRowIndices()[top + i], left, boxWidth, pointingDigits)) {
+                    return true;
+                }
+            }
+            int inMoreThanOneCol = inMoreThanOneSegment(colSegments, boxWidth);
+            for (int j = 0; j < boxWidth; j++) {
+                int pointingDigits = colSegments[j] & ~inMoreThanOneCol;
+                if (pointingDigits != 0
+                        && removeOutsideBox(grid.getColIndices()[left + j], top, boxHeight, pointingDigits)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean boxLineReduction() {
+        // aka: claiming, locked candidates (claiming), line/box interaction
+        // Look at each row (or column) where it crosses each box. If the candidates for a digit
+        // within the row all lie in the one box, the digit must go in that row within the box, so
+        // it can be removed from the candidates of the rest of the box.
+        Grid grid = puzzle.getGrid();
+        int boxHeight = grid.getBoxHeight();
+        int boxWidth = grid.getBoxWidth();
+        for (int[] box : grid.getBoxIndices()) {
+            boxSegments(box, boxHeight, boxWidth);
+            int top = grid.getRowNumber(box[0]);
+            int left = grid.getColNumber(box[0]);
+            for (int i = 0; i < boxHeight; i++) {
+                int claimedDigits = rowSegments[i]
+                        & ~candidatesOutsideBox(grid.getRowIndices()[top + i], left, boxWidth);
+                if (claimedDigits != 0 && removeFromBox(box, boxWidth, true, i, claimedDigits)) {
+                    return true;
+                }
+            }
+            for (int j = 0; j < boxWidth; j++) {
+                int claimedDigits = colSegments[j]
+                        & ~candidatesOutsideBox(grid.getColIndices()[left + j], top, boxHeight);
+                if (claimedDigits != 0 && removeFromBox(box, boxWidth, false, j, claimedDigits)) {
+                    return true;
                 }
             }
         }
         return false;
     }
 
-    private boolean constrainUsingSet(Deque<Integer> indices, Set<Integer> digits, int[] block) {
-        //logCandidatesSetFound(indices, digits);
+    private void boxSegments(int[] box, int boxHeight, int boxWidth) {
+        // the box's cells run along each of its rows in turn
+        Arrays.fill(rowSegments, 0, boxHeight, 0);
+        Arrays.fill(colSegments, 0, boxWidth, 0);
+        for (int k = 0; k < box.length; k++) {
+            if (partialSolution[box[k]] == 0) {
+                rowSegments[k / boxWidth] |= candidates[box[k]];
+                colSegments[k % boxWidth] |= candidates[box[k]];
+            }
+        }
+    }
+
+    private static int inMoreThanOneSegment(int[] segments, int numSegments) {
+        int seenOnce = 0;
+        int seenTwice = 0;
+        for (int i = 0; i < numSegments; i++) {
+            seenTwice |= seenOnce & segments[i];
+            seenOnce |= segments[i];
+        }
+        return seenTwice;
+    }
+
+    private int candidatesOutsideBox(int[] line, int boxStart, int boxLength) {
+        // the candidates of the line's empty cells other than those at positions boxStart up to
+        // boxStart + boxLength, where it crosses the box
+        int digits = 0;
+        for (int i = 0; i < line.length; i++) {
+            if ((i < boxStart || i >= boxStart + boxLength) && partialSolution[line[i]] == 0) {
+                digits |= candidates[line[i]];
+            }
+        }
+        return digits;
+    }
+
+    private boolean removeOutsideBox(int[] line, int boxStart, int boxLength, int digits) {
         boolean altered = false;
-        for (int cellIndex : block) {
-            if (indices.contains(cellIndex)) {
+        for (int i = 0; i < line.length; i++) {
+            if (i < boxStart || i >= boxStart + boxLength) {
+                altered |= removeCandidates(line[i], digits);
+            }
+        }
+        return altered;
+    }
+
+    private boolean removeFromBox(int[] box, int boxWidth, boolean byRow, int keep, int digits) {
+        // removes the digits from every cell of the box except those in its row (or column) keep
+        boolean altered = false;
+        for (int k = 0; k < box.length; k++) {
+            if ((byRow ? k / boxWidth : k % boxWidth) != keep) {
+                altered |= removeCandidates(box[k], digits);
+            }
+        }
+        return altered;
+    }
+
+    boolean xWing() {
+        // Look at each digit. If in two rows the candidates for the digit lie in the same two
+        // columns and nowhere else, then the digit goes at one pair of opposite corners of the
+        // rectangle they make, either way once in each of the two columns, so it can be removed
+        // from the candidates of the rest of both columns. The same goes with rows and columns
+        // swapped.
+        Grid grid = puzzle.getGrid();
+        Arrays.fill(rowPositions, 0);
+        Arrays.fill(colPositions, 0);
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            if (partialSolution[cellIndex] != 0) {
                 continue;
             }
-            for (int digit : digits) {
-                if (candidateSets.get(cellIndex).remove(digit)) {
-                    //logCandidatesChange(cellIndex, digit);
-                    altered = true;
+            int row = grid.getRowNumber(cellIndex);
+            int col = grid.getColNumber(cellIndex);
+            for (int digits = candidates[cellIndex]; digits != 0; digits &= digits - 1) {
+                int digit = Integer.numberOfTrailingZeros(digits);
+                rowPositions[digit * numDigits + row] |= 1 << col;
+                colPositions[digit * numDigits + col] |= 1 << row;
+            }
+        }
+        for (int digit = 0; digit < numDigits; digit++) {
+            if (xWingInLines(rowPositions, digit, grid.getColIndices())
+                    || xWingInLines(colPositions, digit, grid.getRowIndices())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean xWingInLines(int[] positions, int digit, int[][] crossingLines) {
+        // positions are those of the digit along each line, and crossingLines[i][line] the cell
+        // where crossing line i meets the line
+        int offset = digit * numDigits;
+        for (int line = 0; line < numDigits; line++) {
+            int corners = positions[offset + line];
+            if (Integer.bitCount(corners) != 2) {
+                continue;
+            }
+            for (int other = line + 1; other < numDigits; other++) {
+                if (positions[offset + other] != corners) {
+                    continue;
+                }
+                boolean altered = false;
+                for (int crossings = corners; crossings != 0; crossings &= crossings - 1) {
+                    int[] crossingLine = crossingLines[Integer.numberOfTrailingZeros(crossings)];
+                    for (int i = 0; i < numDigits; i++) {
+                        if (i != line && i != other) {
+                            altered |= removeCandidates(crossingLine[i], 1 << digit);
+                        }
+                    }
+                }
+                if (altered) {
+                    return true;
                 }
             }
         }
-        return altered;
+        return false;
+    }
+
+    private boolean removeCandidates(int cellIndex, int digits) {
+        int removed = candidates[cellIndex] & digits;
+        if (removed == 0) {
+            return false;
+        }
+        //logCandidatesChange(cellIndex, removed);
+        eliminations += Integer.bitCount(removed);
+        candidates[cellIndex] &= ~digits;
+        return true;
+    }
+
+    private void addSolvedDigit(int cellIndex, int digit) {
+        Grid grid = puzzle.getGrid();
+        rowDigits[grid.getRowNumber(cellIndex)] |= Solver.digitMask(digit);
+        colDigits[grid.getColNumber(cellIndex)] |= Solver.digitMask(digit);
+        boxDigits[grid.getBoxNumber(cellIndex)] |= Solver.digitMask(digit);
     }
 
     private void handleSolvedCell(int cellIndex, int digit) {
         partialSolution[cellIndex] = digit;
+        numUnsolved--;
+        addSolvedDigit(cellIndex, digit);
         //logSolvedCell(cellIndex, digit);
         if (usingCandidates) {
             constrainCandidates(cellIndex);
@@ -475,7 +707,7 @@ class PuzzleRater {
             solutionLog.add(PuzzlePrinter.valuesArrayToString(puzzle.getGrid(), partialSolution));
             if (usingCandidates) {
                 solutionLog.add("Candidates grid: \n");
-                solutionLog.add(PuzzlePrinter.candidatesSetsToString(puzzle.getGrid(), candidateSets));
+                solutionLog.add(PuzzlePrinter.candidatesMasksToString(puzzle.getGrid(), candidates));
             }
         }
         int boxNum = puzzle.getGrid().getBoxNumber(cellIndex) + 1;
@@ -499,22 +731,25 @@ class PuzzleRater {
         }
     }
 
-    private void logCandidatesSetFound(Deque<Integer> indices, Set<Integer> digits) {
+    private void logCandidatesSetFound(int[] block, int setPositions, int digits) {
         if (verbosity >= 1) {
             Set<Integer> boxNums = new HashSet<>();
             Set<Integer> rowNums = new HashSet<>();
             Set<Integer> colNums = new HashSet<>();
-            for (Integer i : indices) {
-                boxNums.add(puzzle.getGrid().getBoxNumber(i) + 1);
-                rowNums.add(puzzle.getGrid().getRowNumber(i) + 1);
-                colNums.add(puzzle.getGrid().getColNumber(i) + 1);
+            for (int i = 0; i < block.length; i++) {
+                if ((setPositions & (1 << i)) != 0) {
+                    boxNums.add(puzzle.getGrid().getBoxNumber(block[i]) + 1);
+                    rowNums.add(puzzle.getGrid().getRowNumber(block[i]) + 1);
+                    colNums.add(puzzle.getGrid().getColNumber(block[i]) + 1);
+                }
             }
-            solutionLog.add("\tFound set of size " + digits.size() + " containing digits " + digits +
-                    " around box " + boxNums + ", row " + rowNums + ", column " + colNums + "\n");
+            solutionLog.add("\tFound set of size " + Integer.bitCount(digits) + " containing digits "
+                    + Integer.toBinaryString(digits) + " around box " + boxNums + ", row " + rowNums
+                    + ", column " + colNums + "\n");
         }
         if (verbosity == 2) {
             solutionLog.add("Candidates grid: \n");
-            solutionLog.add(sudoku.logic.PuzzlePrinter.candidatesSetsToString(puzzle.getGrid(), candidateSets));
+            solutionLog.add(sudoku.logic.PuzzlePrinter.candidatesMasksToString(puzzle.getGrid(), candidates));
         }
     }
 
@@ -533,7 +768,7 @@ class PuzzleRater {
                     .append(PuzzlePrinter.valuesArrayToString(puzzle.getGrid(), partialSolution));
         } else {
             result.append("\nNot solved:\n")
-                    .append(PuzzlePrinter.candidatesSetsToString(puzzle.getGrid(), candidateSets));
+                    .append(PuzzlePrinter.candidatesMasksToString(puzzle.getGrid(), candidates));
         }
         return result.toString();
     }
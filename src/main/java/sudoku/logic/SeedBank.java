@@ -0,0 +1,123 @@
+package sudoku.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+SeedBank holds puzzles of known difficulty for the Generator to make isomorphs of. It starts with the
+seeds in seeds.txt, one per line as boxHeight x boxWidth, difficulty and the puzzle numbers with '.'
+for an empty cell and letters for digits past 9, and takes on puzzles generated later up to
+MAX_SEEDS for each grid size and difficulty. A seed for a grid turned on its side, e.g. 2x3 for 3x2,
+serves both. Every seed is solved and rated as it is banked, so they can be shared between threads.
+ */
+final class SeedBank {
+
+    static final int MAX_SEEDS = 32;
+
+    private static final String SEEDS_RESOURCE = "/seeds.txt";
+
+    private static final Map<String, List<Puzzle>> seeds = load();
+
+    private SeedBank() {
+    }
+
+    static Puzzle randomSeed(Grid grid, Difficulty difficulty, SplittableRandom random) {
+        // a seed for the grid, or for the grid on its side, or null if there are none
+        List<Puzzle> candidates = seeds(grid, difficulty);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    static List<Puzzle> seeds(Grid grid, Difficulty difficulty) {
+        // every seed for the grid, or for the grid on its side, in a list of the caller's own
+        List<Puzzle> candidates = new ArrayList<>(seeds.getOrDefault(
+                key(grid.getBoxHeight(), grid.getBoxWidth(), difficulty), List.of()));
+        if (grid.getBoxHeight() != grid.getBoxWidth()) {
+            candidates.addAll(seeds.getOrDefault(key(grid.getBoxWidth(), grid.getBoxHeight(), difficulty), List.of()));
+        }
+        return candidates;
+    }
+
+    static void add(Puzzle puzzle) {
+        // only puzzles with a single solution and a difficulty are worth keeping
+        Difficulty difficulty = puzzle.getDifficulty();
+        if (difficulty == Difficulty.INVALID || difficulty == Difficulty.TOO_DIFFICULT) {
+            return;
+        }
+        workOutInAdvance(puzzle);
+        List<Puzzle> bucket = seeds.computeIfAbsent(
+                key(puzzle.getGrid().getBoxHeight(), puzzle.getGrid().getBoxWidth(), difficulty),
+                key -> new CopyOnWriteArrayList<>());
+        // the check and the add together, so threads adding at once can't take it past MAX_SEEDS
+        synchronized (bucket) {
+            if (bucket.size() < MAX_SEEDS) {
+                bucket.add(puzzle);
+            }
+        }
+    }
+
+    private static void workOutInAdvance(Puzzle seed) {
+        // A Puzzle works out its solution, difficulty and number of unknowns on first use and keeps
+        // them, unsynchronized. Working them all out before banking means a seed is only ever read
+        // afterwards, e.g. by isomorph, so any number of threads can share it.
+        seed.getDifficulty();
+        seed.getNumUnknowns();
+    }
+
+    private static String key(int boxHeight, int boxWidth, Difficulty difficulty) {
+        return boxHeight + "x" + boxWidth + " " + difficulty;
+    }
+
+    private static Map<String, List<Puzzle>> load() {
+        Map<String, List<Puzzle>> loaded = new ConcurrentHashMap<>();
+        InputStream in = SeedBank.class.getResourceAsStream(SEEDS_RESOURCE);
+        if (in == null) {
+            return loaded;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                String[] boxSize = fields[0].split("x");
+                Grid grid = new Grid(Integer.parseInt(boxSize[0]), Integer.parseInt(boxSize[1]));
+                Puzzle seed = new Puzzle(grid, parsePuzzleNums(fields[2]));
+                // a seed which no longer rates as it did when it was banked, e.g. after a change
+                // to PuzzleRater, is left out rather than served as the wrong difficulty
+                if (seed.getNumSolutions() != 1 || seed.getDifficulty() != Difficulty.valueOf(fields[1])) {
+                    continue;
+                }
+                workOutInAdvance(seed);
+                loaded.computeIfAbsent(key(grid.getBoxHeight(), grid.getBoxWidth(), seed.getDifficulty()),
+                        key -> new CopyOnWriteArrayList<>()).add(seed);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return loaded;
+    }
+
+    private static int[] parsePuzzleNums(String puzzleNums) {
+        int[] nums = new int[puzzleNums.length()];
+        for (int i = 0; i < nums.length; i++) {
+            char c = puzzleNums.charAt(i);
+            nums[i] = c == '.' ? 0 : Character.digit(c, 36);
+        }
+        return nums;
+    }
+}
@@ -0,0 +1,155 @@
+package sudoku.logic;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+SolutionCounter is the listener shared by the searches ParallelSolver runs over separate subtrees of
+one puzzle. It keeps the total number of solutions found and the first solution found, and stops
+every search once the limit is reached. The searches check isStopped between branches so stopping
+is cooperative, and more solutions than the limit may be found before they all notice, but only
+solutionLimit are counted or passed on.
+
+If the caller's listener takes solutions, the searches never call it themselves, as it may block
+for as long as it likes, e.g. while a streaming client is not keeping up. Instead they hand each
+solution over a small queue to the caller's thread, which passes them on one at a time in drain.
+Once the queue is full the searches wait for room as a managed block, so the pool can make up for
+them with other workers in the meantime.
+ */
+class SolutionCounter implements SolutionListener {
+
+    // how many solutions may be waiting for the caller's listener, and how often the searches
+    // waiting for room check whether they have been stopped
+    private static final int MAX_QUEUED_SOLUTIONS = 64;
+    private static final long WAIT_MILLIS = 10;
+
+    // marks the end of the queue once every search has finished
+    private static final int[] END = new int[0];
+
+    private final long solutionLimit;
+    private final SolutionListener listener;
+    private final BlockingQueue<int[]> queue;
+    private final AtomicLong numSolutions = new AtomicLong();
+    private final AtomicReference<int[]> solution = new AtomicReference<>();
+    private volatile boolean stopped;
+    private volatile boolean abandoned;
+
+    SolutionCounter(long solutionLimit, SolutionListener listener) {
+        this.solutionLimit = solutionLimit;
+        this.listener = listener;
+        queue = listener != null && listener.takesSolutions() ? new ArrayBlockingQueue<>(MAX_QUEUED_SOLUTIONS) : null;
+    }
+
+    @Override
+    public boolean onSolution(int[] solution) {
+        if (queue == null) {
+            return count(solution);
+        }
+        hand(solution);
+        return !stopped;
+    }
+
+    @Override
+    public boolean takesSolutions() {
+        // without a listener to pass them on to only the first solution is kept, so the searches
+        // needn't copy any after it, whichever search counts the first asked before it was counted
+        return queue != null || numSolutions.get() == 0;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped || (listener != null && listener.isStopped());
+    }
+
+    boolean passesSolutionsOn() {
+        return queue != null;
+    }
+
+    void drain(ForkJoinTask<?> search) {
+        // Passes each solution the searches hand over to the caller's listener, on the caller's
+        // thread, until they have all finished. Solutions arriving after the listener or the limit
+        // has stopped the search are dropped.
+        boolean finished = false;
+        try {
+            for (int[] next = queue.take(); next != END; next = queue.take()) {
+                if (!stopped) {
+                    boolean wantsMore = listener.onSolution(next);
+                    if (count(next) && !wantsMore) {
+                        stopped = true;
+                    }
+                }
+            }
+            finished = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!finished) {
+                // nothing will make room in the queue any more, so the searches mustn't wait for it
+                abandoned = true;
+                stopped = true;
+            }
+        }
+        if (finished) {
+            search.join();
+        }
+    }
+
+    void finish() {
+        // called once every search has finished, however they finished
+        if (queue != null) {
+            hand(END);
+        }
+    }
+
+    private void hand(int[] solution) {
+        if (queue.offer(solution)) {
+            return;
+        }
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean handed;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    while (!isReleasable()) {
+                        handed = queue.offer(solution, WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    // the end is handed over even once stopped, as the caller's thread waits for it
+                    return handed || (solution == END ? abandoned : stopped) || (handed = queue.offer(solution));
+                }
+            });
+        } catch (InterruptedException ex) {
+            stopped = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean count(int[] solution) {
+        long solutionNumber = numSolutions.incrementAndGet();
+        if (solutionNumber == 1) {
+            this.solution.set(solution);
+        }
+        if (solutionNumber >= solutionLimit) {
+            stopped = true;
+        }
+        return !stopped;
+    }
+
+    long getNumSolutions() {
+        return Math.min(numSolutions.get(), solutionLimit);
+    }
+
+    int[] getSolution() {
+        return solution.get();
+    }
+}
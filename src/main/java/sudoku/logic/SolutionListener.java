@@ -0,0 +1,24 @@
+package sudoku.logic;
+
+/*
+A SolutionListener is given each solution as a solver engine finds it, so solutions can be used as
+they are found rather than collected first. Either method can stop the search early.
+ */
+public interface SolutionListener {
+
+    // Called with each solution found, return false to stop searching for more.
+    boolean onSolution(int[] solution);
+
+    // Whether the solutions are wanted at all, if not onSolution is given null rather than a copy of
+    // each one, so the solver needn't copy them, e.g. for a listener which only counts solutions or
+    // is only there to stop the search.
+    default boolean takesSolutions() {
+        return true;
+    }
+
+    // Checked between branches of the search, so the search can be stopped even while no solutions
+    // are being found, e.g. once whoever wanted them has gone away.
+    default boolean isStopped() {
+        return false;
+    }
+}
@@ -7,226 +7,453 @@ Solver uses brute force to quickly solve sudoku puzzles. The principal idea is t
 but speed it up considerably by using some partial constraint propagation to prune the search tree
 - c.f. http://norvig.com/sudoku.html
  */
-class Solver {
+class Solver implements SolverEngine {
 
     private Puzzle puzzle;
+    private Grid grid;
     private int numCells;
     private int numDigits;
-    private int[][] candidates;
-    private int numSolutions;
+    private int[] candidates;
+    private int[][] digitOrders;
+    private int[] trailCells;
+    private int[] trailCandidates;
+    private int trailSize;
+    private int numSolved;
+    private int[] solvedQueue;
+    private int solvedQueueSize;
+    private int[] dirtyBlocks;
+    private int dirtyBlocksSize;
+    private boolean[] isBlockDirty;
+    private boolean contradiction;
+    private long numSolutions;
+    private long solutionLimit;
     private int[] solution;
+    private SolutionListener listener;
+    private boolean stopped;
+    private int[] frameCells;
+    private int[] frameTrailMarks;
+    private int[] frameNextDigits;
     public static final int MAX_SOLUTIONS = 2;
 
     public Solver() {
     }
 
     public int solve(Puzzle puzzle) {
+        return (int) solve(puzzle, MAX_SOLUTIONS, null);
+    }
+
+    public long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener) {
         this.puzzle = puzzle;
-        numCells = puzzle.getGrid().getNumCells();
-        numDigits = puzzle.getGrid().getNumDigits();
+        grid = puzzle.getGrid();
+        numCells = grid.getNumCells();
+        numDigits = grid.getNumDigits();
         setCandidates();
+        search(solutionLimit, listener);
+        return numSolutions;
+    }
+
+    void search(Grid grid, int[] cellCandidates, SolutionListener listener) {
+        // search a subtree handed out by ParallelSolver, given as the candidates of each cell,
+        // passing every solution found to the listener until it stops the search
+        startFrom(grid, cellCandidates);
+        search(Long.MAX_VALUE, listener);
+        // the Solver may be a worker's workspace, which shouldn't keep the listener from being collected
+        this.listener = null;
+    }
+
+    private void search(long solutionLimit, SolutionListener listener) {
         numSolutions = 0;
+        this.solutionLimit = solutionLimit;
+        this.listener = listener;
+        stopped = false;
         backtracking();
-        return numSolutions;
+    }
+
+    int[] propagateCandidates(Grid grid, int[] cellCandidates) {
+        // propagate from the given candidates and return the candidates of each cell afterwards,
+        // or null if there is a contradiction, for ParallelSolver to split the search on
+        startFrom(grid, cellCandidates);
+        propagate();
+        return contradiction ? null : Arrays.copyOf(candidates, numCells);
+    }
+
+    boolean hasSolution(Grid grid, int[] cellCandidates) {
+        // whether there is any solution at all from the given candidates of each cell
+        startFrom(grid, cellCandidates);
+        search(1, null);
+        return numSolutions != 0;
+    }
+
+    boolean solvesByPropagation(Grid grid, int[] cellCandidates) {
+        // whether propagation from the given candidates alone, with no guessing, solves every
+        // cell, in which case there is certainly a single solution
+        startFrom(grid, cellCandidates);
+        numSolutions = 0;
+        propagate();
+        return !contradiction && numSolved == numCells;
+    }
+
+    static int[] clueCandidates(Puzzle puzzle) {
+        // the candidates of each cell before any propagation, a bitmask with bit (digit - 1) set
+        // when digit is a candidate
+        int allDigits = (1 << puzzle.getGrid().getNumDigits()) - 1;
+        int[] puzzleNums = puzzle.getPuzzleNums();
+        int[] cellCandidates = new int[puzzleNums.length];
+        for (int cellIndex = 0; cellIndex < puzzleNums.length; cellIndex++) {
+            cellCandidates[cellIndex] = puzzleNums[cellIndex] == 0 ? allDigits : digitMask(puzzleNums[cellIndex]);
+        }
+        return cellCandidates;
+    }
+
+    private void startFrom(Grid grid, int[] cellCandidates) {
+        this.grid = grid;
+        numCells = grid.getNumCells();
+        numDigits = grid.getNumDigits();
+        setWorkspace();
+        digitOrders = null;
+        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
+            candidates[cellIndex] = cellCandidates[cellIndex];
+            if (cellCandidates[cellIndex] == 0) {
+                contradiction = true;
+            } else if (isSingleDigit(cellCandidates[cellIndex])) {
+                numSolved++;
+                solvedQueue[solvedQueueSize++] = cellIndex;
+            }
+        }
+        markAllBlocksDirty();
     }
 
     private void setCandidates() {
         // the candidates for each cell are the digits that might go in that cell
         // we need a collection of at most numDigits and will be using the operations:
         //   size(), contains(digit), remove(digit)
-        // using an array turns out to be much faster than an arrayList or set
-        //   (unless perhaps puzzles are very large)
-        // the first index of each array stores the length,
-        //   contains(digit) will iterate over the array
-        //   remove(digit) will swap the digit with the current 'last' element and decrement length
-        candidates = new int[numCells][numDigits + 1];
+        // storing the candidates of each cell as a single int bitmask, with bit (digit - 1) set
+        // when digit is a candidate, turns these into bitCount, & and &= ~ respectively
+        setWorkspace();
+        digitOrders = null;
         int[] puzzleNums = puzzle.getPuzzleNums();
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
             if (puzzleNums[cellIndex] == 0) {
-                // store length of candidates at index 0
-                candidates[cellIndex][0] = numDigits;
-                // the candidates array will now be 1-indexed which corresponds nicely with the
-                // digits themselves
-                for (int digit = 1; digit <= numDigits; digit++) {
-                    candidates[cellIndex][digit] = digit;
-                }
+                candidates[cellIndex] = allDigitsMask();
             } else {
-                candidates[cellIndex][0] = 1;
-                candidates[cellIndex][1] = puzzleNums[cellIndex];
+                candidates[cellIndex] = digitMask(puzzleNums[cellIndex]);
+                numSolved++;
+                solvedQueue[solvedQueueSize++] = cellIndex;
             }
         }
+        markAllBlocksDirty();
     }
 
-    public int[] generateRandomSolution(Grid grid) {
-        // solve an empty puzzle for use in generating new random puzzles.
-        puzzle = new Puzzle(grid, new int[grid.getNumCells()]);
-        numCells = puzzle.getGrid().getNumCells();
-        numDigits = puzzle.getGrid().getNumDigits();
-        setShuffledCandidates();
-        numSolutions = 0;
-        backtracking();
-        return solution;
+    public int[] generateRandomSolution(Grid grid, SplittableRandom random) {
+        // solve an empty puzzle for use in generating new random puzzles. The caller keeps the
+        // grid, so it is a copy rather than this Solver's solution array.
+        this.grid = grid;
+        numCells = grid.getNumCells();
+        numDigits = grid.getNumDigits();
+        setWorkspace();
+        setShuffledCandidates(random);
+        search(1, null);
+        return Arrays.copyOf(solution, numCells);
     }
 
-    private void setShuffledCandidates() {
-        List<Integer> digits = new ArrayList<>(numDigits);
-        for (int digit = 1; digit <= numDigits; digit++) {
-            digits.add(digit);
-        }
-        candidates = new int[numCells][numDigits + 1];
+    private void setShuffledCandidates(SplittableRandom random) {
+        // a bitmask has no order of its own, so keep a shuffled order of the digits for each cell
+        // which backtracking uses when deciding which candidate to try first
+        digitOrders = new int[numCells][numDigits];
         for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            candidates[cellIndex][0] = numDigits;
-            Collections.shuffle(digits);
-            for (int j = 1; j <= numDigits; j++) {
-                candidates[cellIndex][j] = digits.get(j - 1);
+            candidates[cellIndex] = allDigitsMask();
+            for (int j = 0; j < numDigits; j++) {
+                digitOrders[cellIndex][j] = j + 1;
             }
+            shuffle(digitOrders[cellIndex], random);
         }
+        markAllBlocksDirty();
     }
 
-    public int[] getSolution() {
-        return solution;
+    static void shuffle(int[] values, SplittableRandom random) {
+        // Fisher-Yates in place, on primitives and a random owned by the caller, so shuffling
+        // neither boxes nor contends with other threads for a shared Random
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
     }
 
-    private boolean isValid() {
-        int[][] allNeighbours = puzzle.getGrid().getNeighbours();
-        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            if (candidates[cellIndex][0] == 1) {
-                int solvedDigit = candidates[cellIndex][1];
-                for (int neighbourIndex : allNeighbours[cellIndex]) {
-                    if (candidates[neighbourIndex][0] == 1 &&
-                            candidates[neighbourIndex][1] == solvedDigit) {
-                        return false;
-                    }
-                }
+    private void setWorkspace() {
+        // The arrays are only allocated when the size of grid changes, so once a Solver has solved
+        // one puzzle it can solve any number more of the same size without allocating at all.
+        if (candidates == null || candidates.length != numCells) {
+            candidates = new int[numCells];
+            solution = new int[numCells];
+
+            // every change to a cell's candidates is recorded on the trail as the cell index and
+            // its previous candidates, so backtracking can undo a branch by popping back to a mark
+            // rather than keeping a copy of the whole board. Along any one search path a cell can
+            // only lose candidates, so it is changed at most numDigits times and the trail never
+            // needs to grow.
+            trailCells = new int[numCells * numDigits];
+            trailCandidates = new int[numCells * numDigits];
+
+            // the work still to do in propagation: newly solved cells whose digit has not yet been
+            // removed from their neighbours, and blocks whose candidates have changed since they
+            // were last searched for sole locations
+            solvedQueue = new int[numCells];
+            dirtyBlocks = new int[numDigits * 3];
+            isBlockDirty = new boolean[numDigits * 3];
+
+            // backtracking keeps a frame for each cell it has branched on: the cell, the trail
+            // size before the branch and how far through the cell's candidates it has got. Each
+            // branch solves at least one more cell, so there are never more frames than cells.
+            frameCells = new int[numCells];
+            frameTrailMarks = new int[numCells];
+            frameNextDigits = new int[numCells];
+        } else {
+            Arrays.fill(isBlockDirty, false);
+        }
+        numSolved = 0;
+        contradiction = false;
+        trailSize = 0;
+        solvedQueueSize = 0;
+        dirtyBlocksSize = 0;
+    }
+
+    private void setCellCandidates(int cellIndex, int cellCandidates) {
+        int oldCandidates = candidates[cellIndex];
+        trailCells[trailSize] = cellIndex;
+        trailCandidates[trailSize] = oldCandidates;
+        trailSize++;
+        candidates[cellIndex] = cellCandidates;
+
+        if (cellCandidates == 0) {
+            contradiction = true;
+            if (isSingleDigit(oldCandidates)) {
+                numSolved--;
             }
+            return;
+        }
+        if (isSingleDigit(cellCandidates)) {
+            numSolved++;
+            solvedQueue[solvedQueueSize++] = cellIndex;
         }
-        return true;
+        markBlockDirty(grid.getRowNumber(cellIndex));
+        markBlockDirty(numDigits + grid.getColNumber(cellIndex));
+        markBlockDirty(numDigits * 2 + grid.getBoxNumber(cellIndex));
     }
 
-    private boolean isUnsolvable() {
-        for (int[] cellCandidates : candidates) {
-            if (cellCandidates[0] == 0) {
-                return true;
+    private void undoTo(int trailMark) {
+        while (trailSize > trailMark) {
+            trailSize--;
+            int cellIndex = trailCells[trailSize];
+            if (isSingleDigit(candidates[cellIndex])) {
+                numSolved--;
             }
+            candidates[cellIndex] = trailCandidates[trailSize];
+            if (isSingleDigit(candidates[cellIndex])) {
+                numSolved++;
+            }
+        }
+        contradiction = false;
+    }
+
+    private void markBlockDirty(int block) {
+        if (!isBlockDirty[block]) {
+            isBlockDirty[block] = true;
+            dirtyBlocks[dirtyBlocksSize++] = block;
+        }
+    }
+
+    private void markAllBlocksDirty() {
+        for (int block = 0; block < numDigits * 3; block++) {
+            markBlockDirty(block);
         }
-        return !isValid();
     }
 
-    private boolean isSolved() {
-        for (int[] cellCandidates : candidates) {
-            if (cellCandidates[0] != 1) {
-                return false;
+    private void clearQueues() {
+        solvedQueueSize = 0;
+        while (dirtyBlocksSize > 0) {
+            isBlockDirty[dirtyBlocks[--dirtyBlocksSize]] = false;
+        }
+    }
+
+    public int[] getSolution() {
+        // the array is reused by the next puzzle this Solver solves
+        return numSolutions == 0 ? null : solution;
+    }
+
+    private int allDigitsMask() {
+        return (1 << numDigits) - 1;
+    }
+
+    static int digitMask(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    private static int maskToDigit(int mask) {
+        // only meaningful for a mask with a single bit set, i.e. a solved cell
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    private static boolean isSingleDigit(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+
+    private void propagate() {
+        // Work through the queues until there is nothing left to do or a contradiction is found,
+        // i.e. a cell with no candidates (which includes two neighbours solved with the same digit)
+        // or a digit with nowhere to go in a block. Solved cells are handled before blocks as they
+        // are cheaper and make the sole location search more likely to find something.
+        while (!contradiction) {
+            if (solvedQueueSize > 0) {
+                removeFromNeighboursCandidates(solvedQueue[--solvedQueueSize]);
+            } else if (dirtyBlocksSize > 0) {
+                int block = dirtyBlocks[--dirtyBlocksSize];
+                isBlockDirty[block] = false;
+                soleLocation(grid.getBlockIndices()[block]);
+            } else {
+                return;
             }
         }
-        return isValid();
+        clearQueues();
     }
 
-    private void constrainCandidates() {
+    private void removeFromNeighboursCandidates(int cellIndex) {
         // aka: candidate elimination
         // If a cell is solved, the digit it contains can be removed from the candidates of any
         // neighbouring (i.e. in the same block, row or column) cell.
-        boolean altered;
-        do {
-            altered = false;
-            for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-                if (candidates[cellIndex][0] == 1) {
-                    if (removeFromNeighboursCandidates(cellIndex)) {
-                        altered = true;
-                    }
-                }
-            }
-        }
-        while (altered);
-    }
-
-    private boolean removeFromNeighboursCandidates(int cellIndex) {
-        boolean altered = false;
-        int solvedDigit = candidates[cellIndex][1];
-        int[][] allNeighbours = puzzle.getGrid().getNeighbours();
-        for (int neighbourIndex : allNeighbours[cellIndex]) {
-            int numCandidates = candidates[neighbourIndex][0];
-            // to remove a solvedDigit, search for it in the candidates, if found
-            // swap it with the current last candidate and decrement the candidates length
-            for (int j = 1; j <= numCandidates; j++) {
-                if (candidates[neighbourIndex][j] == solvedDigit) {
-                    candidates[neighbourIndex][j] = candidates[neighbourIndex][numCandidates];
-                    candidates[neighbourIndex][0]--;
-                    altered = true;
-                    break;
+        int solvedMask = candidates[cellIndex];
+        for (int neighbourIndex : grid.getNeighbours()[cellIndex]) {
+            if ((candidates[neighbourIndex] & solvedMask) != 0) {
+                setCellCandidates(neighbourIndex, candidates[neighbourIndex] & ~solvedMask);
+                if (contradiction) {
+                    return;
                 }
             }
         }
-        return altered;
     }
 
-    private void soleLocation() {
+    private void soleLocation(int[] block) {
         // aka: hidden single, unique candidate, single position, last location
-        // For a given unsolved cell, if there is only one candidate remaining then that candidate
-        // must go in the solution for that cell.
         // For a given block, looking at each cell's candidates, if a digit only appears in one of
         // those candidate lists across all cells, that digit must be the solution for that cell.
-        boolean altered;
-        do {
-            altered = false;
-            constrainCandidates();
-            for (int[] block : puzzle.getGrid().getBlockIndices()) {
-                int[] soleLocationIndices = new int[numDigits + 1];
-                boolean[] soleLocationFound = new boolean[numDigits + 1];
-                Arrays.fill(soleLocationIndices, -1);
-                Arrays.fill(soleLocationFound, false);
-                for (int cellIndex : block) {
-                    if (candidates[cellIndex][0] == 1) {
-                        soleLocationIndices[candidates[cellIndex][1]] = cellIndex;
-                    }
-                    for (int j = 1; j <= candidates[cellIndex][0]; j++) {
-                        int digit = candidates[cellIndex][j];
-                        if (soleLocationIndices[digit] == -1) {
-                            soleLocationIndices[digit] = cellIndex;
-                            soleLocationFound[digit] = true;
-                        } else {
-                            soleLocationFound[digit] = false;
-                        }
-                    }
-                }
 
-                for (int digit = 1; digit <= numDigits; digit++) {
-                    if (soleLocationFound[digit]) {
-                        int cellIndex = soleLocationIndices[digit];
-                        candidates[cellIndex][0] = 1;
-                        candidates[cellIndex][1] = digit;
-                        altered = true;
-                    }
+        // accumulate the digits seen at least once, at least twice and already solved
+        int seenOnce = 0;
+        int seenTwice = 0;
+        int solved = 0;
+        for (int cellIndex : block) {
+            int cellCandidates = candidates[cellIndex];
+            if (isSingleDigit(cellCandidates)) {
+                solved |= cellCandidates;
+            }
+            seenTwice |= seenOnce & cellCandidates;
+            seenOnce |= cellCandidates;
+        }
+        // a digit with nowhere left to go in this block means there is no solution
+        if (seenOnce != allDigitsMask()) {
+            contradiction = true;
+            return;
+        }
+
+        int soleLocations = seenOnce & ~seenTwice & ~solved;
+        while (soleLocations != 0) {
+            int digitMask = Integer.lowestOneBit(soleLocations);
+            soleLocations &= ~digitMask;
+            for (int cellIndex : block) {
+                if ((candidates[cellIndex] & digitMask) != 0) {
+                    setCellCandidates(cellIndex, digitMask);
+                    break;
                 }
             }
         }
-        while (altered);
     }
 
     private void backtracking() {
+        // A depth first search kept on the frame stack rather than by recursion. Each time round
+        // the loop either propagates the changes just made, which may solve the puzzle or call for
+        // a new frame to branch on, or moves the top frame on to its next candidate, dropping the
+        // frame when it has none left.
+        int depth = 0;
+        boolean propagatePending = true;
+        while (true) {
+            if (propagatePending) {
+                propagatePending = false;
 
-        // try to prune the search tree
-        soleLocation();
-        if (isUnsolvable()) {
-            return;
-        }
+                // try to prune the search tree
+                propagate();
+                if (!contradiction) {
+                    if (numSolved == numCells) {
+                        solutionFound();
+                    } else {
+                        // branch on the cell with the fewest candidates
+                        frameCells[depth] = branchingCell(candidates, numDigits);
+                        frameTrailMarks[depth] = trailSize;
+                        frameNextDigits[depth] = 0;
+                        depth++;
+                    }
+                }
+            }
+
+            // stop searching if we have enough solutions or the listener has stopped the search
+            if (numSolutions >= solutionLimit || stopped || (listener != null && listener.isStopped())) {
+                return;
+            }
+            if (depth == 0) {
+                return;
+            }
 
-        // check for a solution
-        if (isSolved()) {
-            if (numSolutions == 0) {
-                solution = new int[numCells];
-                for (int i = 0; i < numCells; i++) {
-                    solution[i] = candidates[i][1];
+            // undo every change made since the top frame's cell was chosen before trying its next
+            // candidate, in shuffled order if there is one, otherwise highest digit first which
+            // is close to the order the swap-on-remove arrays used to give
+            int frame = depth - 1;
+            int nextIndex = frameCells[frame];
+            undoTo(frameTrailMarks[frame]);
+            int nextCandidates = candidates[nextIndex];
+            int digit = 0;
+            while (frameNextDigits[frame] < numDigits) {
+                int i = frameNextDigits[frame]++;
+                int candidate = digitOrders == null ? numDigits - i : digitOrders[nextIndex][i];
+                if ((nextCandidates & digitMask(candidate)) != 0) {
+                    digit = candidate;
+                    break;
                 }
             }
-            numSolutions++;
-            return;
+            if (digit == 0) {
+                depth--;
+                continue;
+            }
+
+            // try this candidate
+            setCellCandidates(nextIndex, digitMask(digit));
+            propagatePending = true;
         }
+    }
 
-        // look for the cell with the fewest candidates to start searching from
+    private void solutionFound() {
+        numSolutions++;
+        if (numSolutions == 1) {
+            for (int i = 0; i < numCells; i++) {
+                solution[i] = maskToDigit(candidates[i]);
+            }
+        }
+        if (listener != null) {
+            // a listener which keeps the solutions it is given needs each as a new array
+            int[] digits = !listener.takesSolutions() ? null
+                    : numSolutions == 1 ? Arrays.copyOf(solution, numCells) : currentSolution();
+            if (!listener.onSolution(digits)) {
+                stopped = true;
+            }
+        }
+    }
+
+    static int branchingCell(int[] cellCandidates, int numDigits) {
+        // look for the cell with the fewest candidates to start searching from, or -1 if every
+        // cell is solved
         int nextIndex = -1;
         int fewestCandidates = numDigits + 1;
-        for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-            int numCandidates = candidates[cellIndex][0];
+        for (int cellIndex = 0; cellIndex < cellCandidates.length; cellIndex++) {
+            int numCandidates = Integer.bitCount(cellCandidates[cellIndex]);
             if (numCandidates == 2) {
                 nextIndex = cellIndex;
                 break;
@@ -236,37 +463,20 @@ class Solver {
                 fewestCandidates = numCandidates;
             }
         }
+        return nextIndex;
+    }
 
-        int numCandidates = candidates[nextIndex][0];
-        // for each candidate in this cell
-        for (int i = 1; i <= numCandidates; i++) {
-
-            // keep a backup copy of all candidates (it will get mutated in recursive calls)
-            int[][] candidatesCopy = new int[numCells][numDigits + 1];
-            for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-                System.arraycopy(candidates[cellIndex], 0, candidatesCopy[cellIndex], 0, numDigits + 1);
-            }
-
-            // try this candidate
-            candidates[nextIndex][0] = 1;
-            candidates[nextIndex][1] = candidates[nextIndex][i];
-            backtracking();
-
-            // stop searching if we have enough solutions
-            if (numSolutions >= MAX_SOLUTIONS) {
-                break;
-            }
-
-            // restore the backup copy of all candidates before trying the next
-            for (int cellIndex = 0; cellIndex < numCells; cellIndex++) {
-                System.arraycopy(candidatesCopy[cellIndex], 0, candidates[cellIndex], 0, numDigits + 1);
-            }
+    private int[] currentSolution() {
+        int[] digits = new int[numCells];
+        for (int i = 0; i < numCells; i++) {
+            digits[i] = maskToDigit(candidates[i]);
         }
+        return digits;
     }
 
     /*
     private String candidatesToString() {
-        return PuzzlePrinter.candidatesArrayToString(puzzle.getGrid(), candidates);
+        return PuzzlePrinter.candidatesMasksToString(grid, candidates);
     }
     */
-}
\ No newline at end of file
+}
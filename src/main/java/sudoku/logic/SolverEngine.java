@@ -0,0 +1,28 @@
+package sudoku.logic;
+
+import java.util.SplittableRandom;
+
+/*
+A SolverEngine finds solutions to puzzles. Engines are created for each use by SolverEngines, so an
+implementation is free to keep state from solve for getSolution.
+ */
+public interface SolverEngine {
+
+    // Returns the number of solutions found, stopping at Solver.MAX_SOLUTIONS.
+    int solve(Puzzle puzzle);
+
+    // Passes each solution to the listener, which may be null, as it is found, stopping after
+    // solutionLimit of them or when the listener stops it. Returns the number of solutions found.
+    long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener);
+
+    // The first solution found by the last call to solve, or null if there were none.
+    int[] getSolution();
+
+    // A random completely filled grid, for use in generating new random puzzles.
+    default int[] generateRandomSolution(Grid grid) {
+        return generateRandomSolution(grid, new SplittableRandom());
+    }
+
+    // The same, drawing only on the given random, so the same seed always gives the same grid.
+    int[] generateRandomSolution(Grid grid, SplittableRandom random);
+}
@@ -0,0 +1,142 @@
+package sudoku.logic;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+SolverEngines is the registry of solver engines by name. Each grid size has a selected engine, used
+by Puzzle and Generator when no engine is asked for by name. The selection comes from configuration
+or from calibrate, which times each engine on a sample of generated puzzles and picks the fastest.
+ */
+public final class SolverEngines {
+
+    public static final String BACKTRACKING = "backtracking";
+    public static final String DANCING_LINKS = "dancing_links";
+    public static final String PARALLEL = "parallel";
+
+    private static final Map<String, Supplier<SolverEngine>> engines = new ConcurrentHashMap<>();
+    private static final Map<String, String> selectedEngines = new ConcurrentHashMap<>();
+    private static volatile String defaultEngine = BACKTRACKING;
+
+    static {
+        register(BACKTRACKING, Solver::new);
+        register(DANCING_LINKS, DancingLinksSolver::new);
+        register(PARALLEL, ParallelSolver::new);
+    }
+
+    private SolverEngines() {
+    }
+
+    public static void register(String name, Supplier<SolverEngine> engineFactory) {
+        // Puzzle relies on backtracking always being Solver, to lend out one per thread
+        if (isBuiltIn(name) && engines.containsKey(name)) {
+            throw new IllegalArgumentException("The built in solver engines cannot be replaced.");
+        }
+        engines.put(name, engineFactory);
+    }
+
+    private static boolean isBuiltIn(String name) {
+        return name.equals(BACKTRACKING) || name.equals(DANCING_LINKS) || name.equals(PARALLEL);
+    }
+
+    public static void unregister(String name) {
+        // built in engines stay registered, and any grid size which selected this engine goes back
+        // to the default
+        if (isBuiltIn(name)) {
+            throw new IllegalArgumentException("The built in solver engines cannot be unregistered.");
+        }
+        engines.remove(name);
+        selectedEngines.values().removeIf(name::equals);
+        if (name.equals(defaultEngine)) {
+            defaultEngine = BACKTRACKING;
+        }
+    }
+
+    public static SortedSet<String> getNames() {
+        return new TreeSet<>(engines.keySet());
+    }
+
+    public static SolverEngine create(String name) throws IllegalArgumentException {
+        Supplier<SolverEngine> engineFactory = engines.get(name);
+        if (engineFactory == null) {
+            throw new IllegalArgumentException("Unknown solver engine " + name + ", expected one of "
+                    + getNames() + ".");
+        }
+        return engineFactory.get();
+    }
+
+    public static SolverEngine create(Grid grid) {
+        return create(getSelected(grid.getBoxHeight(), grid.getBoxWidth()));
+    }
+
+    public static String getSelected(int boxHeight, int boxWidth) {
+        return selectedEngines.getOrDefault(gridKey(boxHeight, boxWidth), defaultEngine);
+    }
+
+    public static void select(int boxHeight, int boxWidth, String name) throws IllegalArgumentException {
+        create(name);
+        selectedEngines.put(gridKey(boxHeight, boxWidth), name);
+    }
+
+    public static void selectDefault(String name) throws IllegalArgumentException {
+        create(name);
+        defaultEngine = name;
+    }
+
+    public static String calibrate(int boxHeight, int boxWidth, int sampleSize) {
+        /*
+        Generate sampleSize many puzzles, time each registered engine solving all of them and select
+        the fastest for this grid size. Each engine solves the sample once first to warm it up, and
+        an engine which gets any of the sample wrong is never selected.
+         */
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Generator generator = new Generator(grid);
+        List<int[]> samplePuzzles = new ArrayList<>(sampleSize);
+        List<int[]> sampleSolutions = new ArrayList<>(sampleSize);
+        for (int n = 0; n < sampleSize; n++) {
+            Puzzle puzzle = generator.generatePuzzle(Difficulty.UNRATED);
+            samplePuzzles.add(puzzle.getPuzzleNums());
+            sampleSolutions.add(puzzle.getSolution());
+        }
+
+        String fastestEngine = getSelected(boxHeight, boxWidth);
+        long fastestTime = Long.MAX_VALUE;
+        for (String name : getNames()) {
+            if (!solvesCorrectly(grid, samplePuzzles, sampleSolutions, name)) {
+                continue;
+            }
+            long time = timeSolving(grid, samplePuzzles, name);
+            if (time < fastestTime) {
+                fastestEngine = name;
+                fastestTime = time;
+            }
+        }
+        select(boxHeight, boxWidth, fastestEngine);
+        return fastestEngine;
+    }
+
+    private static boolean solvesCorrectly(Grid grid, List<int[]> puzzles, List<int[]> solutions,
+                                           String name) {
+        for (int i = 0; i < puzzles.size(); i++) {
+            SolverEngine engine = create(name);
+            if (engine.solve(new Puzzle(grid, puzzles.get(i))) != 1
+                    || !Arrays.equals(engine.getSolution(), solutions.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long timeSolving(Grid grid, List<int[]> puzzles, String name) {
+        long before = System.nanoTime();
+        for (int[] puzzleNums : puzzles) {
+            create(name).solve(new Puzzle(grid, puzzleNums));
+        }
+        return System.nanoTime() - before;
+    }
+
+    private static String gridKey(int boxHeight, int boxWidth) {
+        return boxHeight + "x" + boxWidth;
+    }
+}
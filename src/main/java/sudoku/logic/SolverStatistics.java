@@ -0,0 +1,81 @@
+package sudoku.logic;
+
+import java.util.*;
+
+/*
+A method to compare the solver engines: time each engine solving the same generated puzzles,
+and the same puzzles with most of their clues removed which are near-empty with many solutions.
+ */
+public class SolverStatistics {
+
+    private static final List<String> log = new ArrayList<>();
+
+    public static String engineTimeStatistics(int sampleSize) {
+        /*
+        For each valid grid size, produce sampleSize many puzzles and return some summary statistics
+        for how long each solver engine took to solve them.
+         */
+        log.clear();
+        compareEngines(2, 2, sampleSize);
+        compareEngines(2, 3, sampleSize);
+        compareEngines(2, 4, sampleSize);
+        compareEngines(2, 5, sampleSize);
+        compareEngines(3, 3, sampleSize);
+
+        StringBuilder sb = new StringBuilder();
+        for (String s : log) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static void compareEngines(int boxHeight, int boxWidth, int sampleSize) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Generator generator = new Generator(grid);
+        List<int[]> validPuzzles = new ArrayList<>();
+        List<int[]> sparsePuzzles = new ArrayList<>();
+        Random random = new Random();
+        for (int n = 0; n < sampleSize; n++) {
+            int[] puzzleNums = generator.generatePuzzle(Difficulty.UNRATED).getPuzzleNums();
+            validPuzzles.add(puzzleNums);
+            int[] sparsePuzzleNums = Arrays.copyOf(puzzleNums, puzzleNums.length);
+            for (int cellIndex = 0; cellIndex < sparsePuzzleNums.length; cellIndex++) {
+                if (random.nextInt(4) != 0) {
+                    sparsePuzzleNums[cellIndex] = 0;
+                }
+            }
+            sparsePuzzles.add(sparsePuzzleNums);
+        }
+
+        for (String engine : SolverEngines.getNames()) {
+            log.add(boxHeight + "x" + boxWidth + " grid, " + engine + ", ");
+            log.add("solved " + sampleSize + " generated puzzles.\n");
+            logStatistics(timeSolving(grid, validPuzzles, engine));
+            log.add(boxHeight + "x" + boxWidth + " grid, " + engine + ", ");
+            log.add("solved " + sampleSize + " sparse puzzles.\n");
+            logStatistics(timeSolving(grid, sparsePuzzles, engine));
+        }
+        log.add("\n");
+    }
+
+    private static long[] timeSolving(Grid grid, List<int[]> puzzles, String engine) {
+        long[] durations = new long[puzzles.size()];
+        for (int i = 0; i < puzzles.size(); i++) {
+            long before = System.nanoTime();
+            new Puzzle(grid, puzzles.get(i), engine).getNumSolutions();
+            durations[i] = System.nanoTime() - before;
+        }
+        return durations;
+    }
+
+    private static void logStatistics(long[] durations) {
+        Arrays.sort(durations);
+        LongSummaryStatistics statistics = Arrays.stream(durations).summaryStatistics();
+        long p99 = durations[Math.min(durations.length - 1, (int) Math.ceil(durations.length * 0.99) - 1)];
+
+        String meanString = String.format("mean: %.2f", statistics.getAverage() / 1000);
+        log.add("Solve time statistics (us) - \tmin: " + statistics.getMin() / 1000 +
+                ", \tmax: " + statistics.getMax() / 1000 +
+                ", \t" + meanString + ", \tp99: " + p99 / 1000 + ".\n");
+    }
+}
@@ -0,0 +1,153 @@
+package sudoku.logic;
+
+/*
+Technique is each of the steps PuzzleRater tries in turn, in the order they are declared unless the
+rater is given a pipeline of its own. A step which makes progress, by solving a cell or removing a
+candidate, raises the puzzle's rating to its own rating and sends the rater back to the first step.
+Those which use candidates have them worked out the first time one of them is tried.
+ */
+public enum Technique {
+    LAST_DIGIT_IN_A_BOX("Last Digit in a Box", 1, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.lastDigitInABlock(grid.getBoxIndices());
+        }
+    },
+    LAST_DIGIT_IN_A_ROW("Last Digit in a Row", 1, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.lastDigitInABlock(grid.getRowIndices());
+        }
+    },
+    LAST_DIGIT_IN_A_COLUMN("Last Digit in a Column", 1, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.lastDigitInABlock(grid.getColIndices());
+        }
+    },
+    SOLE_LOCATION_IN_A_BOX("Sole Location in a Box", 1, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleLocationInABlock(grid.getBoxIndices());
+        }
+    },
+    SOLE_LOCATION_IN_A_ROW("Sole Location in a Row", 2, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleLocationInABlock(grid.getRowIndices());
+        }
+    },
+    SOLE_LOCATION_IN_A_COLUMN("Sole Location in a Column", 2, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleLocationInABlock(grid.getColIndices());
+        }
+    },
+    SOLE_DIGIT("Sole Digit", 3, false) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleDigit();
+        }
+    },
+    // makes no progress itself, only works out the candidates, so the time that takes is not put
+    // down to the first step using them
+    USING_CANDIDATES("Using Candidates", 3, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return false;
+        }
+    },
+    // these two never find anything in the first pass with candidates, i.e. unless later steps have
+    // changed the candidates they are the same as the sole digit and sole location steps above
+    SOLE_CANDIDATE("Sole Candidate", 3, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleCandidate();
+        }
+    },
+    SOLE_LOCATION("Sole Location", 3, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.soleLocation();
+        }
+    },
+    NAKED_PAIR("Naked Pair", 4, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.nakedSets(2);
+        }
+    },
+    NAKED_TRIPLE("Naked Triple", 4, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.nakedSets(3);
+        }
+    },
+    HIDDEN_PAIR("Hidden Pair", 5, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.hiddenSets(2);
+        }
+    },
+    HIDDEN_TRIPLE("Hidden Triple", 5, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.hiddenSets(3);
+        }
+    },
+    NAKED_QUAD("Naked Quad", 6, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.nakedSets(4);
+        }
+    },
+    HIDDEN_QUAD("Hidden Quad", 6, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.hiddenSets(4);
+        }
+    },
+    POINTING("Pointing", 7, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.pointing();
+        }
+    },
+    BOX_LINE_REDUCTION("Box/Line Reduction", 7, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.boxLineReduction();
+        }
+    },
+    X_WING("X-Wing", 8, true) {
+        @Override
+        boolean apply(PuzzleRater rater, Grid grid) {
+            return rater.xWing();
+        }
+    };
+
+    private final String name;
+    private final int rating;
+    private final boolean usesCandidates;
+
+    Technique(String name, int rating, boolean usesCandidates) {
+        this.name = name;
+        this.rating = rating;
+        this.usesCandidates = usesCandidates;
+    }
+
+    // Returns whether the step made any progress on the rater's partial solution or candidates.
+    abstract boolean apply(PuzzleRater rater, Grid grid);
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public boolean usesCandidates() {
+        return usesCandidates;
+    }
+}
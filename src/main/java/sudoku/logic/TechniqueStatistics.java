@@ -0,0 +1,180 @@
+package sudoku.logic;
+
+import java.util.*;
+
+/*
+TechniqueStatistics counts, for each Technique, how many times PuzzleRater tried it, how many of
+those made progress, the cells it solved and the candidates it removed, and the nanoseconds it took.
+Each PuzzleRater keeps the statistics of its last rating. Timing every step costs about as much as
+the cheaper steps themselves, so the steps are only timed, and each rating only added to the running
+totals kept here for all threads, while collecting is switched on.
+ */
+public final class TechniqueStatistics {
+
+    private static final TechniqueStatistics totals = new TechniqueStatistics();
+    private static volatile boolean collecting = false;
+
+    private final long[] attempts = new long[Technique.values().length];
+    private final long[] hits = new long[attempts.length];
+    private final long[] placements = new long[attempts.length];
+    private final long[] eliminations = new long[attempts.length];
+    private final long[] nanos = new long[attempts.length];
+    private long ratings;
+
+    TechniqueStatistics() {
+    }
+
+    public static void setCollecting(boolean collecting) {
+        TechniqueStatistics.collecting = collecting;
+    }
+
+    public static boolean isCollecting() {
+        return collecting;
+    }
+
+    public static TechniqueStatistics aggregate() {
+        // a copy of the totals, which carry on changing
+        TechniqueStatistics copy = new TechniqueStatistics();
+        synchronized (totals) {
+            copy.add(totals);
+        }
+        return copy;
+    }
+
+    public static void resetAggregate() {
+        synchronized (totals) {
+            totals.clear();
+        }
+    }
+
+    static void accumulate(TechniqueStatistics rating) {
+        synchronized (totals) {
+            totals.add(rating);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(attempts, 0);
+        Arrays.fill(hits, 0);
+        Arrays.fill(placements, 0);
+        Arrays.fill(eliminations, 0);
+        Arrays.fill(nanos, 0);
+        ratings = 0;
+    }
+
+    void startRating() {
+        clear();
+        ratings = 1;
+    }
+
+    void record(Technique technique, boolean hit, int placed, int eliminated, long nanoseconds) {
+        int index = technique.ordinal();
+        attempts[index]++;
+        if (hit) {
+            hits[index]++;
+        }
+        placements[index] += placed;
+        eliminations[index] += eliminated;
+        nanos[index] += nanoseconds;
+    }
+
+    private void add(TechniqueStatistics other) {
+        for (int index = 0; index < attempts.length; index++) {
+            attempts[index] += other.attempts[index];
+            hits[index] += other.hits[index];
+            placements[index] += other.placements[index];
+            eliminations[index] += other.eliminations[index];
+            nanos[index] += other.nanos[index];
+        }
+        ratings += other.ratings;
+    }
+
+    public long getRatings() {
+        return ratings;
+    }
+
+    public long getAttempts(Technique technique) {
+        return attempts[technique.ordinal()];
+    }
+
+    public long getHits(Technique technique) {
+        return hits[technique.ordinal()];
+    }
+
+    public long getPlacements(Technique technique) {
+        return placements[technique.ordinal()];
+    }
+
+    public long getEliminations(Technique technique) {
+        return eliminations[technique.ordinal()];
+    }
+
+    public long getNanos(Technique technique) {
+        return nanos[technique.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        return Arrays.stream(nanos).sum();
+    }
+
+    @Override
+    public String toString() {
+        // one line for each technique tried, with its share of the time taken
+        long totalNanos = getTotalNanos();
+        StringBuilder sb = new StringBuilder();
+        sb.append(ratings).append(" ratings.\n");
+        for (Technique technique : Technique.values()) {
+            int index = technique.ordinal();
+            if (attempts[index] == 0) {
+                continue;
+            }
+            String share = totalNanos == 0 ? "" : String.format(", \ttime: %.1f%%", 100.0 * nanos[index] / totalNanos);
+            sb.append(technique.getName()).append(" - \ttried: ").append(attempts[index])
+                    .append(", \thits: ").append(hits[index])
+                    .append(", \tplaced: ").append(placements[index])
+                    .append(", \teliminated: ").append(eliminations[index])
+                    .append(", \tus: ").append(nanos[index] / 1000)
+                    .append(share).append(".\n");
+        }
+        return sb.toString();
+    }
+
+    public static String techniqueTimeStatistics(int sampleSize) {
+        /*
+        For each valid grid size up to 3x3, rate sampleSize many generated puzzles, collecting while
+        they are rated, and return the totals for each technique.
+         */
+        StringBuilder sb = new StringBuilder();
+        int[][] boxSizes = {{2, 2}, {2, 3}, {2, 4}, {2, 5}, {3, 3}};
+        boolean wasCollecting = collecting;
+        try {
+            for (int[] boxSize : boxSizes) {
+                Grid grid = new Grid(boxSize[0], boxSize[1]);
+                Generator generator = new Generator(grid);
+                List<int[]> puzzles = new ArrayList<>();
+                for (int n = 0; n < sampleSize; n++) {
+                    puzzles.add(generator.generatePuzzle(Difficulty.UNRATED).getPuzzleNums());
+                }
+
+                // solve each puzzle before collecting, so only the rating is timed
+                List<Puzzle> unrated = new ArrayList<>();
+                for (int[] puzzleNums : puzzles) {
+                    Puzzle puzzle = new Puzzle(grid, puzzleNums);
+                    puzzle.getSolution();
+                    unrated.add(puzzle);
+                }
+                resetAggregate();
+                setCollecting(true);
+                for (Puzzle puzzle : unrated) {
+                    puzzle.getRating();
+                }
+                setCollecting(wasCollecting);
+                sb.append(boxSize[0]).append("x").append(boxSize[1]).append(" grid, ")
+                        .append(aggregate()).append("\n");
+            }
+        } finally {
+            setCollecting(wasCollecting);
+        }
+        return sb.toString();
+    }
+}
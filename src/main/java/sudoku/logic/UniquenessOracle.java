@@ -0,0 +1,60 @@
+package sudoku.logic;
+
+/*
+UniquenessOracle decides, for the Generator, which clues can be removed from a puzzle whose single
+solution is already known. Any second solution after a clue is removed must differ from the known one
+in that cell, otherwise it would have been a second solution before, so rather than solving the
+whole puzzle again it only searches for a solution with that cell set to one of its other digits. The
+clues are kept as the candidates of each cell from one removal to the next, so each removal only
+changes the one cell, and the same Solver, with its arrays, is used for every search.
+ */
+class UniquenessOracle {
+
+    // Above this many digits, i.e. for 12x12 grids and larger, searching for a second solution can
+    // take minutes once most of the clues have gone, so a clue is only removed if propagation alone
+    // still solves the puzzle. Those puzzles need no guessing, which also keeps them within what
+    // PuzzleRater can rate.
+    static final int MAX_SEARCHED_DIGITS = 10;
+
+    private final Grid grid;
+    private final Solver solver;
+    private final int[] clueCandidates;
+    private final int allDigits;
+
+    UniquenessOracle(Grid grid, int[] solution, Solver solver) {
+        // starts with every cell of the solution as a clue
+        this.grid = grid;
+        this.solver = solver;
+        allDigits = (1 << grid.getNumDigits()) - 1;
+        clueCandidates = new int[grid.getNumCells()];
+        for (int cellIndex = 0; cellIndex < clueCandidates.length; cellIndex++) {
+            clueCandidates[cellIndex] = Solver.digitMask(solution[cellIndex]);
+        }
+    }
+
+    boolean removeClue(int cellIndex) {
+        // removes the clue from the cell and returns true if the puzzle still has a single solution,
+        // otherwise leaves the clue in place and returns false
+        int clue = clueCandidates[cellIndex];
+        boolean stillSingleSolution;
+        if (grid.getNumDigits() <= MAX_SEARCHED_DIGITS) {
+            clueCandidates[cellIndex] = allDigits & ~clue;
+            stillSingleSolution = !solver.hasSolution(grid, clueCandidates);
+        } else {
+            clueCandidates[cellIndex] = allDigits;
+            stillSingleSolution = solver.solvesByPropagation(grid, clueCandidates);
+        }
+        clueCandidates[cellIndex] = stillSingleSolution ? allDigits : clue;
+        return stillSingleSolution;
+    }
+
+    boolean solvesByPropagation() {
+        // whether propagation alone solves the puzzle with the clues left now
+        return solver.solvesByPropagation(grid, clueCandidates);
+    }
+
+    void restoreClue(int cellIndex, int digit) {
+        // puts back a clue removed earlier, which can never give the puzzle another solution
+        clueCandidates[cellIndex] = Solver.digitMask(digit);
+    }
+}
@@ -0,0 +1,80 @@
+package sudoku.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Workspaces lends each thread a Solver and a PuzzleRater for each size of grid, which keep their
+arrays from one puzzle to the next. Generating a puzzle solves it again for every clue removed, so
+this saves allocating, and then collecting, a new set of arrays hundreds of times per puzzle. Each
+lease must be returned on the same thread. One already lent out and not yet returned is never lent
+twice, a new one is made instead.
+ */
+final class Workspaces {
+
+    private static final ThreadLocal<Workspaces> perThread = ThreadLocal.withInitial(Workspaces::new);
+
+    // one entry per size of grid this thread has used, there are only ever a few
+    private final List<Workspace> workspaces = new ArrayList<>();
+
+    private static class Workspace {
+        private final int boxHeight;
+        private final int boxWidth;
+        private final Solver solver = new Solver();
+        private final PuzzleRater rater = new PuzzleRater();
+        private boolean solverLent;
+        private boolean raterLent;
+
+        private Workspace(int boxHeight, int boxWidth) {
+            this.boxHeight = boxHeight;
+            this.boxWidth = boxWidth;
+        }
+    }
+
+    private Workspaces() {
+    }
+
+    static Solver leaseSolver(Grid grid) {
+        Workspace workspace = perThread.get().workspaceFor(grid);
+        if (workspace.solverLent) {
+            return new Solver();
+        }
+        workspace.solverLent = true;
+        return workspace.solver;
+    }
+
+    static void release(Grid grid, Solver solver) {
+        Workspace workspace = perThread.get().workspaceFor(grid);
+        if (workspace.solver == solver) {
+            workspace.solverLent = false;
+        }
+    }
+
+    static PuzzleRater leaseRater(Grid grid) {
+        Workspace workspace = perThread.get().workspaceFor(grid);
+        if (workspace.raterLent) {
+            return new PuzzleRater();
+        }
+        workspace.raterLent = true;
+        return workspace.rater;
+    }
+
+    static void release(Grid grid, PuzzleRater rater) {
+        Workspace workspace = perThread.get().workspaceFor(grid);
+        if (workspace.rater == rater) {
+            workspace.raterLent = false;
+        }
+    }
+
+    private Workspace workspaceFor(Grid grid) {
+        for (int i = 0; i < workspaces.size(); i++) {
+            Workspace workspace = workspaces.get(i);
+            if (workspace.boxHeight == grid.getBoxHeight() && workspace.boxWidth == grid.getBoxWidth()) {
+                return workspace;
+            }
+        }
+        Workspace workspace = new Workspace(grid.getBoxHeight(), grid.getBoxWidth());
+        workspaces.add(workspace);
+        return workspace;
+    }
+}
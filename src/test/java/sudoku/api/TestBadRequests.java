@@ -9,6 +9,7 @@ import io.reactivex.Flowable;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import sudoku.logic.Difficulty;
 
 import javax.inject.Inject;
@@ -38,7 +39,9 @@ public class TestBadRequests {
                 Arguments.of(2, 4, Difficulty.UNRATED),
                 Arguments.of(2, 5, Difficulty.TOO_DIFFICULT),
                 Arguments.of(3, 3, Difficulty.INVALID),
-                Arguments.of(3, 3, null)
+                Arguments.of(3, 3, null),
+                Arguments.of(3, 4, Difficulty.EASY),
+                Arguments.of(4, 4, Difficulty.FIENDISH)
         );
     }
 
@@ -52,6 +55,47 @@ public class TestBadRequests {
         });
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"", "iso", "ISOMORPH", "banked"})
+    public void badGenerateModeRequests(String mode) {
+        String uri = "/generate/3/3/" + Difficulty.EASY + "?mode=" + mode;
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"x", "1.5", "99999999999999999999"})
+    public void badGenerateSeedRequests(String seed) {
+        String uri = "/generate/3/3/" + Difficulty.EASY + "?seed=" + seed;
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "pack", "PACKED", "base64"})
+    public void badGenerateFormatRequests(String format) {
+        String uri = "/generate/3/3/" + Difficulty.EASY + "?format=" + format;
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "?count=0", "?count=-1", "?count=10001", "?count=x", "?count=5&mode=iso",
+            "?count=5&format=pack"})
+    public void badGenerateBulkRequests(String query) {
+        String uri = "/generate/bulk/3/3/" + Difficulty.EASY + query;
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+
     private static Stream<Arguments> someInvalidGridSizes() {
         return Stream.of(
                 Arguments.of(-2, 2),
@@ -61,7 +105,7 @@ public class TestBadRequests {
                 Arguments.of(4, 0),
                 Arguments.of(2, 1),
                 Arguments.of(1, 5),
-                Arguments.of(3, 4),
+                Arguments.of(3, 5),
                 Arguments.of(4, 5),
                 Arguments.of(2, 6)
         );
@@ -100,7 +144,11 @@ public class TestBadRequests {
                 Arguments.of(4, 2),
                 Arguments.of(2, 5),
                 Arguments.of(5, 2),
-                Arguments.of(3, 3)
+                Arguments.of(3, 3),
+                Arguments.of(3, 4),
+                Arguments.of(4, 3),
+                Arguments.of(4, 4),
+                Arguments.of(5, 5)
         );
     }
 
@@ -203,4 +251,28 @@ public class TestBadRequests {
             PuzzleResponse generated = response.blockingFirst();
         });
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(strings = {"q", "Z", "-", "\u00bd", "\u0661"})
+    void badSolveRequestPuzzleNumsContainsCharNotADigit(String c) {
+        // a letter past the largest digit, or a character Java would otherwise read as a number
+        String uri = "/solve/5/5/" + c + ".".repeat(624);
+
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-1", "1001", "many"})
+    void badSolveRequestMaxSolutions(String maxSolutions) {
+        int[] emptyPuzzle = new int[81];
+        String uri = "/solve/3/3/" + puzzleNumsAsString(emptyPuzzle) + "?maxSolutions=" + maxSolutions;
+
+        assertThrows(HttpClientResponseException.class, () -> {
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse generated = response.blockingFirst();
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package sudoku.api;
+
+import io.reactivex.Flowable;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+A client asking for everything at once should get every item, however many more than MAX_DEMAND
+there are, while one asking for a few at a time gets only those it asks for.
+ */
+public class TestBlockingStream {
+
+    @Test
+    public void unboundedDemandGetsEverything() {
+        int numItems = BlockingStream.MAX_DEMAND + 10;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Flowable<Integer> items = BlockingStream.create(executor, stream -> {
+                for (int i = 0; i < numItems; i++) {
+                    if (!stream.emit(i)) {
+                        return;
+                    }
+                }
+            });
+            // count asks for Long.MAX_VALUE items up front
+            assertEquals(numItems, (long) items.count().blockingGet());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void boundedDemandGetsOnlyWhatIsAsked() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Flowable<Integer> items = BlockingStream.create(executor, stream -> {
+                for (int i = 0; stream.emit(i); i++) {
+                    assertTrue(i < 5);
+                }
+            });
+            assertEquals(Integer.valueOf(4), items.take(5).blockingLast());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package sudoku.api;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.runtime.server.EmbeddedServer;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import sudoku.logic.Difficulty;
+
+import javax.inject.Inject;
+
+import static io.micronaut.http.HttpRequest.GET;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+With no time at all to solve or generate, solving and seeded generating should time out with 503
+Service Unavailable, while unseeded generating falls back on an isomorph of a banked puzzle.
+*/
+@MicronautTest
+@Property(name = "sudoku.deadline.solve", value = "0s")
+@Property(name = "sudoku.deadline.generate", value = "0s")
+@Property(name = "sudoku.pool.min-high-watermark", value = "0")
+@Property(name = "sudoku.pool.max-high-watermark", value = "0")
+public class TestDeadlines {
+
+    @Inject
+    EmbeddedServer server;
+
+    @Inject
+    @Client("/")
+    HttpClient client;
+
+    @Test
+    public void solvingTimesOut() {
+        HttpClientResponseException ex = assertThrows(HttpClientResponseException.class,
+                () -> client.toBlocking().retrieve(GET("/solve/3/3/" + new String(new char[81]).replace('\0', '.')),
+                        PuzzleResponse.class));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+    }
+
+    @Test
+    public void seededGeneratingTimesOut() {
+        HttpClientResponseException ex = assertThrows(HttpClientResponseException.class,
+                () -> client.toBlocking().retrieve(GET("/generate/3/3/fiendish?seed=1"), PuzzleResponse.class));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+    }
+
+    @Test
+    public void generatingFallsBackOnAnIsomorph() {
+        PuzzleResponse generated = client.toBlocking().retrieve(GET("/generate/3/3/fiendish"), PuzzleResponse.class);
+        assertEquals(Difficulty.FIENDISH, generated.getDifficulty());
+        assertEquals(NumberOfSolutions.SINGLE_SOLUTION, generated.getNumberOfSolutions());
+    }
+}
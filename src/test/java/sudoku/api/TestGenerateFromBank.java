@@ -0,0 +1,81 @@
+package sudoku.api;
+
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.runtime.server.EmbeddedServer;
+import io.micronaut.test.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import sudoku.logic.Difficulty;
+import sudoku.logic.Generator;
+import sudoku.logic.Grid;
+import sudoku.logic.Puzzle;
+import sudoku.logic.PuzzleBank;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static io.micronaut.http.HttpRequest.GET;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Map in a small bank of generated puzzles and check puzzles asked for from the bank come from it.
+*/
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TestGenerateFromBank implements TestPropertyProvider {
+
+    @Inject
+    EmbeddedServer server;
+
+    @Inject
+    @Client("/generate")
+    HttpClient client;
+
+    private final Set<String> banked = new HashSet<>();
+
+    @Override
+    public Map<String, String> getProperties() {
+        List<Puzzle> puzzles = new ArrayList<>();
+        Generator generator = new Generator(new Grid(3, 3));
+        for (int n = 0; n < 5; n++) {
+            Puzzle puzzle = generator.generatePuzzle(Difficulty.TRICKY);
+            puzzles.add(puzzle);
+            banked.add(Arrays.toString(puzzle.getPuzzleNums()));
+        }
+        try {
+            Path path = Files.createTempFile("puzzles", ".bank");
+            path.toFile().deleteOnExit();
+            PuzzleBank.write(path, puzzles);
+            return Collections.singletonMap("sudoku.bank.path", path.toString());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Test
+    public void puzzlesComeFromTheBank() {
+        for (int n = 0; n < 10; n++) {
+            PuzzleResponse generated = client.toBlocking().retrieve(GET("/3/3/tricky?mode=bank"), PuzzleResponse.class);
+            assertTrue(banked.contains(Arrays.toString(generated.getPuzzleNums())));
+            assertEquals(Difficulty.TRICKY, generated.getDifficulty());
+            assertEquals(NumberOfSolutions.SINGLE_SOLUTION, generated.getNumberOfSolutions());
+        }
+
+        PuzzleResponse seeded = client.toBlocking().retrieve(GET("/3/3/tricky?mode=bank&seed=3"), PuzzleResponse.class);
+        PuzzleResponse again = client.toBlocking().retrieve(GET("/3/3/tricky?mode=bank&seed=3"), PuzzleResponse.class);
+        assertArrayEquals(seeded.getPuzzleNums(), again.getPuzzleNums());
+    }
+
+    @Test
+    public void puzzlesMissingFromTheBankAreGenerated() {
+        PuzzleResponse generated = client.toBlocking().retrieve(GET("/3/3/easy?mode=bank"), PuzzleResponse.class);
+        assertFalse(banked.contains(Arrays.toString(generated.getPuzzleNums())));
+        assertEquals(Difficulty.EASY, generated.getDifficulty());
+    }
+}
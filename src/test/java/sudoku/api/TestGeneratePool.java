@@ -0,0 +1,54 @@
+package sudoku.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.runtime.server.EmbeddedServer;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import sudoku.logic.Difficulty;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+
+import static io.micronaut.http.HttpRequest.GET;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Generate puzzles and check the pool reports the requests for their grid size and difficulty.
+*/
+@MicronautTest
+public class TestGeneratePool {
+
+    @Inject
+    EmbeddedServer server;
+
+    @Inject
+    @Client("/generate")
+    HttpClient client;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Test
+    public void poolReportsRequests() throws Exception {
+        for (int n = 0; n < 3; n++) {
+            PuzzleResponse generated = client.toBlocking().retrieve(GET("/2/3/medium"), PuzzleResponse.class);
+            assertEquals(Difficulty.MEDIUM, generated.getDifficulty());
+            assertEquals(NumberOfSolutions.SINGLE_SOLUTION, generated.getNumberOfSolutions());
+        }
+
+        List<Map<String, Object>> fillLevels = objectMapper.readValue(client.toBlocking().retrieve(GET("/pool")),
+                new TypeReference<List<Map<String, Object>>>() {});
+        Map<String, Object> fillLevel = fillLevels.stream()
+                .filter(level -> level.get("boxHeight").equals(2) && level.get("boxWidth").equals(3)
+                        && level.get("difficulty").equals("MEDIUM"))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(3, fillLevel.get("requests"));
+        assertTrue((Integer) fillLevel.get("misses") >= 1);
+        assertTrue((Integer) fillLevel.get("highWatermark") >= 2);
+        assertTrue((Integer) fillLevel.get("size") <= (Integer) fillLevel.get("highWatermark"));
+    }
+}
@@ -1,22 +1,28 @@
 package sudoku.api;
 
 import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.RxStreamingHttpClient;
 import io.micronaut.http.client.annotation.Client;
 import io.micronaut.runtime.server.EmbeddedServer;
 import io.micronaut.test.annotation.MicronautTest;
 import io.reactivex.Flowable;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import sudoku.logic.Difficulty;
+import sudoku.logic.Grid;
+import sudoku.logic.PackedPuzzle;
 
 import javax.inject.Inject;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import static io.micronaut.http.HttpRequest.GET;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /*
 Try generating a singe puzzle of each valid grid size and difficulty, then solve the puzzle and check responses match.
@@ -31,6 +37,10 @@ public class TestGenerateSolveIntegration {
     @Client("/")
     HttpClient client;
 
+    @Inject
+    @Client("/")
+    RxStreamingHttpClient streamingClient;
+
     /*
     Possible valid grid sizes and difficulties for generating and solving puzzles are:
     2x2      EASY only
@@ -38,6 +48,9 @@ public class TestGenerateSolveIntegration {
     2x4 4x2  all difficulties
     3x3      all difficulties
     2x5 5x2  all difficulties
+    3x4 4x3  MEDIUM only
+    4x4      MEDIUM only
+    5x5      MEDIUM only
     */
     private static Stream<Arguments> provideAllValidGenerateCombinations() {
         return Stream.of(
@@ -75,7 +88,12 @@ public class TestGenerateSolveIntegration {
                 Arguments.of(3, 3, Difficulty.TRICKY),
                 Arguments.of(3, 3, Difficulty.TRICKY),
                 Arguments.of(3, 3, Difficulty.FIENDISH),
-                Arguments.of(3, 3, Difficulty.FIENDISH)
+                Arguments.of(3, 3, Difficulty.FIENDISH),
+
+                Arguments.of(3, 4, Difficulty.MEDIUM),
+                Arguments.of(4, 3, Difficulty.MEDIUM),
+                Arguments.of(4, 4, Difficulty.MEDIUM),
+                Arguments.of(5, 5, Difficulty.MEDIUM)
         );
     }
 
@@ -91,6 +109,14 @@ public class TestGenerateSolveIntegration {
         return sb.toString();
     }
 
+    private static String puzzleNumsAsLetters(int[] puzzleNums) {
+        StringBuilder sb = new StringBuilder();
+        for (int digit : puzzleNums) {
+            sb.append(digit == 0 ? '.' : Character.forDigit(digit, 36));
+        }
+        return sb.toString();
+    }
+
     @ParameterizedTest
     @MethodSource("provideAllValidGenerateCombinations")
     public void generateThenSolve(int boxHeight, int boxWidth, Difficulty difficulty) {
@@ -109,4 +135,90 @@ public class TestGenerateSolveIntegration {
         assertEquals(difficulty, generated.getDifficulty());
         assertEquals(difficulty, solved.getDifficulty());
     }
+
+    @ParameterizedTest
+    @MethodSource("provideAllValidGenerateCombinations")
+    public void generateIsomorphThenSolve(int boxHeight, int boxWidth, Difficulty difficulty) {
+        String uri = "/generate/" + boxHeight + "/" + boxWidth + "/" + difficulty + "?mode=isomorph";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse generated = response.blockingFirst();
+
+        uri = "/solve/" + boxHeight + "/" + boxWidth + "/" + puzzleNumsAsString(generated.getPuzzleNums());
+        Flowable<PuzzleResponse> response2 = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse solved = response2.blockingFirst();
+
+        assertArrayEquals(generated.getSolution(), solved.getSolution());
+        assertEquals(NumberOfSolutions.SINGLE_SOLUTION, solved.getNumberOfSolutions());
+        assertEquals(difficulty, generated.getDifficulty());
+        assertEquals(difficulty, solved.getDifficulty());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 3, TRICKY, fresh", "3, 3, MEDIUM, fresh", "3, 3, FIENDISH, isomorph", "4, 4, MEDIUM, isomorph",
+            "2, 4, EASY, bank"})
+    public void sameSeedSamePuzzle(int boxHeight, int boxWidth, Difficulty difficulty, String mode) {
+        String uri = "/generate/" + boxHeight + "/" + boxWidth + "/" + difficulty + "?mode=" + mode + "&seed=-7";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse generated = response.blockingFirst();
+        Flowable<PuzzleResponse> response2 = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse again = response2.blockingFirst();
+
+        assertArrayEquals(generated.getPuzzleNums(), again.getPuzzleNums());
+        assertArrayEquals(generated.getSolution(), again.getSolution());
+        assertEquals(difficulty, generated.getDifficulty());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 3, MEDIUM, fresh", "3, 3, FIENDISH, isomorph", "4, 4, MEDIUM, isomorph", "5, 5, MEDIUM, isomorph"})
+    public void packedFormatUnpacksToTheArrays(int boxHeight, int boxWidth, Difficulty difficulty, String mode) {
+        String uri = "/generate/" + boxHeight + "/" + boxWidth + "/" + difficulty + "?mode=" + mode + "&seed=11";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse generated = response.blockingFirst();
+        Flowable<PuzzleResponse> response2 = (Flowable<PuzzleResponse>) client.retrieve(GET(uri + "&format=packed"),
+                PuzzleResponse.class);
+        PuzzleResponse packed = response2.blockingFirst();
+
+        Grid grid = new Grid(boxHeight, boxWidth);
+        assertNull(packed.getPuzzleNums());
+        assertNull(packed.getSolution());
+        assertArrayEquals(generated.getPuzzleNums(), PackedPuzzle.unpackCells(packed.getPackedPuzzleNums(), grid));
+        assertArrayEquals(generated.getSolution(), PackedPuzzle.unpackCells(packed.getPackedSolution(), grid));
+        assertEquals(difficulty, packed.getDifficulty());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 2, EASY, fresh", "2, 4, TRICKY, fresh", "3, 3, MEDIUM, fresh", "3, 4, MEDIUM, fresh",
+            "3, 3, FIENDISH, isomorph", "5, 5, MEDIUM, isomorph", "2, 5, TRICKY, bank"})
+    public void generateBulkThenSolve(int boxHeight, int boxWidth, Difficulty difficulty, String mode) {
+        String uri = "/generate/bulk/" + boxHeight + "/" + boxWidth + "/" + difficulty + "?count=6&mode=" + mode;
+        List<PuzzleResponse> generated = streamingClient.jsonStream(GET(uri), PuzzleResponse.class)
+                .toList().blockingGet();
+
+        assertEquals(6, generated.size());
+        for (PuzzleResponse puzzle : generated) {
+            uri = "/solve/" + boxHeight + "/" + boxWidth + "/" + puzzleNumsAsString(puzzle.getPuzzleNums());
+            Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+            PuzzleResponse solved = response.blockingFirst();
+
+            assertArrayEquals(puzzle.getSolution(), solved.getSolution());
+            assertEquals(NumberOfSolutions.SINGLE_SOLUTION, solved.getNumberOfSolutions());
+            assertEquals(difficulty, puzzle.getDifficulty());
+            assertEquals(difficulty, solved.getDifficulty());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"3, 4", "4, 4", "5, 5"})
+    public void solveWithLettersForTheLargerDigits(int boxHeight, int boxWidth) {
+        String uri = "/generate/" + boxHeight + "/" + boxWidth + "/" + Difficulty.MEDIUM;
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse generated = response.blockingFirst();
+
+        uri = "/solve/" + boxHeight + "/" + boxWidth + "/" + puzzleNumsAsLetters(generated.getPuzzleNums());
+        Flowable<PuzzleResponse> response2 = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse solved = response2.blockingFirst();
+
+        assertArrayEquals(generated.getPuzzleNums(), solved.getPuzzleNums());
+        assertArrayEquals(generated.getSolution(), solved.getSolution());
+    }
 }
\ No newline at end of file
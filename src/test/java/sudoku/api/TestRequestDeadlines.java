@@ -0,0 +1,50 @@
+package sudoku.api;
+
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.context.event.HttpRequestTerminatedEvent;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Test;
+import sudoku.logic.Deadline;
+
+import javax.inject.Inject;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+A request terminated while it is still being worked on, as Micronaut reports once its client goes
+away, should have its deadline cancelled, while one already answered is left alone.
+*/
+@MicronautTest
+public class TestRequestDeadlines {
+
+    @Inject
+    RequestDeadlines requestDeadlines;
+
+    @Inject
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    public void terminatedRequestIsCancelled() {
+        HttpRequest<?> request = HttpRequest.GET("/solve/2/2/................");
+
+        boolean cancelled = requestDeadlines.withDeadline(request, Duration.ofHours(1), deadline -> {
+            assertFalse(deadline.isExpired());
+            eventPublisher.publishEvent(new HttpRequestTerminatedEvent(request));
+            return deadline.isExpired();
+        });
+
+        assertTrue(cancelled);
+    }
+
+    @Test
+    public void answeredRequestIsLeftAlone() {
+        HttpRequest<?> request = HttpRequest.GET("/generate/2/2/easy");
+
+        Deadline answered = requestDeadlines.withDeadline(request, Duration.ofHours(1), deadline -> deadline);
+        eventPublisher.publishEvent(new HttpRequestTerminatedEvent(request));
+
+        assertFalse(answered.isExpired());
+    }
+}
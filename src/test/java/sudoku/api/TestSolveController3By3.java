@@ -1,15 +1,22 @@
 package sudoku.api;
 
 import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.RxStreamingHttpClient;
 import io.micronaut.http.client.annotation.Client;
 import io.micronaut.runtime.server.EmbeddedServer;
 import io.micronaut.test.annotation.MicronautTest;
 import io.reactivex.Flowable;
 import org.junit.jupiter.api.Test;
 import sudoku.logic.Difficulty;
+import sudoku.logic.Grid;
+import sudoku.logic.Puzzle;
 
 import javax.inject.Inject;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static io.micronaut.http.HttpRequest.GET;
 import static org.hamcrest.CoreMatchers.hasItems;
@@ -29,6 +36,10 @@ public class TestSolveController3By3 {
     @Client("/solve")
     HttpClient client;
 
+    @Inject
+    @Client("/solve")
+    RxStreamingHttpClient streamingClient;
+
     private final int BOX_HEIGHT = 3;
     private final int BOX_WIDTH = 3;
     private final String uriBase = "/" + BOX_HEIGHT + "/" + BOX_WIDTH + "/";
@@ -202,4 +213,102 @@ public class TestSolveController3By3 {
         assertEquals(NumberOfSolutions.NO_SOLUTIONS, puzzleResponse.getNumberOfSolutions());
         assertEquals(Difficulty.INVALID, puzzleResponse.getDifficulty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void slowToFindNoSolutionsUsingDancingLinks() {
+        int[] slowToFindNoSolutions = {0,0,0,0,0,5,0,8,0,0,0,0,6,0,1,0,4,3,0,0,0,0,0,0,0,0,0,0,1,0,5,0,0,0,0,0,0,0,0,1,0,6,0,0,0,3,0,0,0,0,0,0,0,5,5,3,0,0,0,0,0,6,1,0,0,0,0,0,0,0,0,4,0,0,0,0,0,0,0,0,0};
+        int[] zeros = new int[slowToFindNoSolutions.length];
+
+        String uri = uriBase + puzzleNumsAsString(slowToFindNoSolutions) + "?algorithm=dancing_links";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse puzzleResponse = response.blockingFirst();
+
+        assertArrayEquals(slowToFindNoSolutions, puzzleResponse.getPuzzleNums());
+        assertArrayEquals(zeros, puzzleResponse.getSolution());
+        assertEquals(NumberOfSolutions.NO_SOLUTIONS, puzzleResponse.getNumberOfSolutions());
+        assertEquals(Difficulty.INVALID, puzzleResponse.getDifficulty());
+    }
+
+    /*
+    Asking for more than one solution.
+     */
+
+    private static final int[] has10Solutions = {5,9,0,0,0,0,0,4,8,6,0,8,0,0,0,3,0,7,0,0,0,2,0,1,0,0,0,0,0,0,0,4,0,0,0,0,0,7,5,3,0,6,9,8,0,0,0,0,0,9,0,0,0,0,0,0,0,8,0,3,0,0,0,2,0,6,0,0,0,7,0,9,3,4,0,0,0,0,0,6,5};
+
+    private static Set<String> distinctSolutions(List<int[]> solutions) {
+        Set<String> distinct = new HashSet<>();
+        for (int[] solution : solutions) {
+            assertEquals(1, new Puzzle(new Grid(3, 3), solution).getNumSolutions());
+            distinct.add(Arrays.toString(solution));
+        }
+        return distinct;
+    }
+
+    @Test
+    public void maxSolutions() {
+        String uri = uriBase + puzzleNumsAsString(has10Solutions) + "?maxSolutions=4";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse puzzleResponse = response.blockingFirst();
+
+        assertEquals(4, distinctSolutions(puzzleResponse.getSolutions()).size());
+        assertArrayEquals(puzzleResponse.getSolutions().get(0), puzzleResponse.getSolution());
+        assertEquals(NumberOfSolutions.MULTIPLE_SOLUTIONS, puzzleResponse.getNumberOfSolutions());
+        assertEquals(Difficulty.INVALID, puzzleResponse.getDifficulty());
+    }
+
+    @Test
+    public void maxSolutionsMoreThanThereAre() {
+        String uri = uriBase + puzzleNumsAsString(has10Solutions) + "?maxSolutions=100&algorithm=dancing_links";
+        Flowable<PuzzleResponse> response = (Flowable<PuzzleResponse>) client.retrieve(GET(uri), PuzzleResponse.class);
+        PuzzleResponse puzzleResponse = response.blockingFirst();
+
+        assertEquals(10, distinctSolutions(puzzleResponse.getSolutions()).size());
+        assertEquals(NumberOfSolutions.MULTIPLE_SOLUTIONS, puzzleResponse.getNumberOfSolutions());
+    }
+
+    @Test
+    public void maxSolutionsOfOneStillTellsSingleFromMultiple() {
+        int[] singleEmptyCell = {2,5,6,4,8,9,1,7,3,3,7,4,6,1,5,9,8,2,9,8,1,7,2,3,4,5,6,5,9,3,2,7,4,8,6,1,7,1,2,8,0,6,5,4,9,4,6,8,5,9,1,3,2,7,6,3,5,1,4,7,2,9,8,1,2,7,9,5,8,6,3,4,8,4,9,3,6,2,7,1,5};
+
+        PuzzleResponse single = ((Flowable<PuzzleResponse>) client.retrieve(
+                GET(uriBase + puzzleNumsAsString(singleEmptyCell) + "?maxSolutions=1"), PuzzleResponse.class)).blockingFirst();
+        PuzzleResponse multiple = ((Flowable<PuzzleResponse>) client.retrieve(
+                GET(uriBase + puzzleNumsAsString(has10Solutions) + "?maxSolutions=1"), PuzzleResponse.class)).blockingFirst();
+
+        assertEquals(1, single.getSolutions().size());
+        assertEquals(NumberOfSolutions.SINGLE_SOLUTION, single.getNumberOfSolutions());
+        assertEquals(Difficulty.EASY, single.getDifficulty());
+        assertEquals(1, multiple.getSolutions().size());
+        assertEquals(NumberOfSolutions.MULTIPLE_SOLUTIONS, multiple.getNumberOfSolutions());
+        assertEquals(Difficulty.INVALID, multiple.getDifficulty());
+    }
+
+    @Test
+    public void streamEverySolution() {
+        int[] has125Solutions = {0,0,0,3,1,6,5,0,0,8,0,0,5,0,0,1,0,0,0,1,0,8,9,7,2,4,0,9,0,1,0,8,5,0,2,0,0,0,0,9,0,1,0,0,0,0,4,0,2,6,3,0,0,1,0,5,0,0,0,0,0,1,0,1,0,0,4,0,9,0,0,2,0,0,6,1,0,8,0,0,0};
+
+        String uri = "/stream" + uriBase + puzzleNumsAsString(has125Solutions);
+        List<SolutionResponse> solutions = streamingClient.jsonStream(GET(uri), SolutionResponse.class)
+                .toList().blockingGet();
+
+        assertEquals(125, solutions.size());
+        assertEquals(125, solutions.get(124).getSolutionNumber());
+        assertEquals(125, distinctSolutions(solutions.stream().map(SolutionResponse::getSolution)
+                .collect(Collectors.toList())).size());
+    }
+
+    @Test
+    public void streamStopsAtMaxSolutionsOrWhenTheClientStops() {
+        int[] emptyPuzzle = new int[81];
+
+        String uri = "/stream" + uriBase + puzzleNumsAsString(emptyPuzzle);
+        List<SolutionResponse> limited = streamingClient.jsonStream(GET(uri + "?maxSolutions=20&algorithm=parallel"),
+                SolutionResponse.class).toList().blockingGet();
+        // the empty puzzle has far too many solutions to ever finish, so only stopping early ends this
+        List<SolutionResponse> taken = streamingClient.jsonStream(GET(uri), SolutionResponse.class)
+                .take(50).toList().blockingGet();
+
+        assertEquals(20, limited.size());
+        assertEquals(50, taken.size());
+    }
+}
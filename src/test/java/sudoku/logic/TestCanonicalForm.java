@@ -0,0 +1,98 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Every isomorph of a puzzle should have the same canonical form and fingerprint, which should itself be
+an isomorph of the puzzle, while puzzles generated separately should all differ.
+ */
+public class TestCanonicalForm {
+
+    @ParameterizedTest
+    @CsvSource({"2, 2", "2, 3", "3, 2", "2, 4", "2, 5", "3, 3", "3, 4", "4, 3", "4, 4", "5, 5"})
+    public void isomorphsShareTheCanonicalForm(int boxHeight, int boxWidth) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Generator generator = new Generator(grid);
+        Puzzle puzzle = generator.generatePuzzle(grid.getNumDigits() > 10 ? Difficulty.MEDIUM : Difficulty.UNRATED);
+        CanonicalForm canonical = CanonicalForm.of(puzzle);
+
+        SplittableRandom random = new SplittableRandom(boxHeight * 10 + boxWidth);
+        for (int n = 0; n < 20; n++) {
+            CanonicalForm isomorph = CanonicalForm.of(generator.isomorph(puzzle, random));
+            assertArrayEquals(canonical.getPuzzleNums(), isomorph.getPuzzleNums());
+            assertEquals(canonical.getFingerprint(), isomorph.getFingerprint());
+        }
+
+        Puzzle canonicalPuzzle = new Puzzle(grid, canonical.getPuzzleNums());
+        assertEquals(1, canonicalPuzzle.getNumSolutions());
+        assertEquals(puzzle.getNumUnknowns(), canonicalPuzzle.getNumUnknowns());
+        assertEquals(puzzle.getRating(), canonicalPuzzle.getRating());
+        assertArrayEquals(canonical.getPuzzleNums(), CanonicalForm.of(canonicalPuzzle).getPuzzleNums());
+    }
+
+    @Test
+    public void separatePuzzlesDiffer() {
+        Grid grid = new Grid(3, 3);
+        Generator generator = new Generator(grid);
+        Set<Long> fingerprints = new HashSet<>();
+        for (int n = 0; n < 50; n++) {
+            assertTrue(fingerprints.add(CanonicalForm.fingerprint(generator.generatePuzzle(Difficulty.UNRATED))));
+        }
+    }
+
+    @Test
+    public void symmetricPuzzles() {
+        // an empty grid, where every line ties with every other, and a puzzle with empty lines and
+        // a clue in each box along the diagonal, where most do
+        Grid grid = new Grid(5, 5);
+        assertArrayEquals(new int[grid.getNumCells()], CanonicalForm.of(grid, new int[grid.getNumCells()])
+                .getPuzzleNums());
+
+        Grid grid3By3 = new Grid(3, 3);
+        int[] diagonal = new int[grid3By3.getNumCells()];
+        int[] shifted = new int[grid3By3.getNumCells()];
+        for (int box = 0; box < 3; box++) {
+            diagonal[(box * 3) * 9 + box * 3] = box + 1;
+            shifted[(box * 3 + 2) * 9 + (2 - box) * 3 + 1] = 9 - box;
+        }
+        CanonicalForm canonical = CanonicalForm.of(grid3By3, diagonal);
+        assertEquals(canonical.getFingerprint(), CanonicalForm.of(grid3By3, shifted).getFingerprint());
+        assertEquals(3, Arrays.stream(canonical.getPuzzleNums()).filter(digit -> digit != 0).count());
+        assertArrayEquals(canonical.getPuzzleNums(), CanonicalForm.of(grid3By3, canonical.getPuzzleNums())
+                .getPuzzleNums());
+
+        diagonal[1] = 4;
+        assertNotEquals(canonical.getFingerprint(), CanonicalForm.of(grid3By3, diagonal).getFingerprint());
+    }
+
+    @Test
+    public void filledSymmetricGrid() {
+        // a 16x16 grid filled in a pattern, whose rows, columns and digits tie every which way
+        Grid grid = new Grid(4, 4);
+        int[] pattern = new int[grid.getNumCells()];
+        for (int row = 0; row < 16; row++) {
+            for (int col = 0; col < 16; col++) {
+                pattern[row * 16 + col] = (4 * (row % 4) + row / 4 + col) % 16 + 1;
+            }
+        }
+        long start = System.nanoTime();
+        CanonicalForm canonical = CanonicalForm.of(grid, pattern);
+        Generator generator = new Generator(grid);
+        SplittableRandom random = new SplittableRandom(16);
+        for (int n = 0; n < 10; n++) {
+            Puzzle isomorph = generator.isomorph(new Puzzle(grid, pattern), random);
+            assertEquals(canonical.getFingerprint(), CanonicalForm.fingerprint(isomorph));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+}
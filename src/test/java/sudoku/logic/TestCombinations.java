@@ -0,0 +1,70 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+The tables should list each combination once, in increasing order, and skipping ahead should find
+the same sets as checking every combination in turn.
+ */
+public class TestCombinations {
+
+    @Test
+    public void everyCombinationInOrder() {
+        for (int numItems = 0; numItems <= 25; numItems++) {
+            Combinations combinations = Combinations.of(numItems);
+            assertSame(combinations, Combinations.of(numItems));
+            assertEquals(numItems, combinations.getNumItems());
+            for (int size = 2; size <= Combinations.MAX_SIZE; size++) {
+                int[] masks = combinations.getMasks(size);
+                long expected = 1;
+                for (int i = 1; i <= size; i++) {
+                    expected = expected * (numItems - size + i) / i;
+                }
+                assertEquals(expected, masks.length);
+                for (int i = 0; i < masks.length; i++) {
+                    assertEquals(size, Integer.bitCount(masks[i]));
+                    assertTrue(masks[i] >>> numItems == 0);
+                    // the lowest item is the highest bit reversed, so in lexicographic order the
+                    // reversed bits decrease
+                    assertTrue(i == 0
+                            || Integer.compareUnsigned(Integer.reverse(masks[i - 1]), Integer.reverse(masks[i])) > 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nextSetFindsEverySet() {
+        Random random = new Random(25);
+        for (int trial = 0; trial < 200; trial++) {
+            int numItems = 2 + random.nextInt(11);
+            int[] itemMasks = new int[numItems];
+            for (int item = 0; item < numItems; item++) {
+                // mostly few bits, as the cells of a naked set or the digits of a hidden one have
+                itemMasks[item] = random.nextInt(1 << 10) & random.nextInt(1 << 10) & random.nextInt(1 << 10);
+            }
+            Combinations combinations = Combinations.of(numItems);
+            for (int size = 2; size <= Combinations.MAX_SIZE; size++) {
+                int[] masks = combinations.getMasks(size);
+                int found = combinations.nextSet(size, 0, itemMasks);
+                for (int i = 0; i < masks.length; i++) {
+                    int union = 0;
+                    for (int item = 0; item < numItems; item++) {
+                        if ((masks[i] & (1 << item)) != 0) {
+                            union |= itemMasks[item];
+                        }
+                    }
+                    if (Integer.bitCount(union) <= size) {
+                        assertEquals(i, found);
+                        found = combinations.nextSet(size, i + 1, itemMasks);
+                    }
+                }
+                assertEquals(-1, found);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestDancingLinksSolver3By3 {
+
+    private Puzzle puzzle;
+    private final int BOX_HEIGHT = 3;
+    private final int BOX_WIDTH = 3;
+    private final Grid grid = new Grid(BOX_HEIGHT, BOX_WIDTH);
+
+    /*
+    A selection of the cases in TestSolver3By3, solved using dancing links instead.
+    */
+
+    @Test
+    public void alreadySolved() {
+        int[] alreadySolved = {9, 7, 4, 2, 3, 6, 1, 5, 8, 6, 3, 8, 5, 9, 1, 7, 4, 2, 1, 2, 5, 4, 8, 7, 9, 3, 6, 3, 1, 6, 7, 5, 4, 2, 8, 9, 7, 4, 2, 9, 1, 8, 5, 6, 3, 5, 8, 9, 3, 6, 2, 4, 1, 7, 8, 6, 7, 1, 2, 5, 3, 9, 4, 2, 5, 3, 6, 4, 9, 8, 7, 1, 4, 9, 1, 8, 7, 3, 6, 2, 5};
+
+        puzzle = new Puzzle(grid, alreadySolved, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(1, puzzle.getNumSolutions());
+        assertArrayEquals(alreadySolved, solution);
+    }
+
+    @Test
+    public void extremelyDifficult() {
+        int[] extremelyDifficult = {0, 0, 8, 9, 0, 7, 0, 5, 0, 0, 7, 0, 0, 4, 0, 0, 1, 0, 0, 6, 0, 5, 0, 1, 0, 0, 7, 6, 3, 0, 0, 0, 0, 9, 0, 0, 0, 0, 9, 0, 0, 0, 8, 0, 0, 0, 0, 7, 4, 0, 0, 0, 3, 5, 7, 0, 0, 6, 0, 3, 0, 2, 0, 0, 4, 0, 0, 7, 0, 0, 6, 0, 0, 0, 6, 1, 0, 4, 7, 0, 0};
+        int[] expected = {4, 1, 8, 9, 6, 7, 2, 5, 3, 5, 7, 2, 3, 4, 8, 6, 1, 9, 9, 6, 3, 5, 2, 1, 4, 8, 7, 6, 3, 4, 8, 1, 5, 9, 7, 2, 1, 5, 9, 7, 3, 2, 8, 4, 6, 2, 8, 7, 4, 9, 6, 1, 3, 5, 7, 9, 1, 6, 8, 3, 5, 2, 4, 8, 4, 5, 2, 7, 9, 3, 6, 1, 3, 2, 6, 1, 5, 4, 7, 9, 8};
+
+        puzzle = new Puzzle(grid, extremelyDifficult, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(1, puzzle.getNumSolutions());
+        assertArrayEquals(expected, solution);
+    }
+
+    @Test
+    public void backtrackingRequired() {
+        int[] backtrackingRequired = {0,0,5,3,0,0,0,0,0,8,0,0,0,0,0,0,2,0,0,7,0,0,1,0,5,0,0,4,0,0,0,0,5,3,0,0,0,1,0,0,7,0,0,0,6,0,0,3,2,0,0,0,8,0,0,6,0,5,0,0,0,0,9,0,0,4,0,0,0,0,3,0,0,0,0,0,0,9,7,0,0};
+        int[] expected = {1,4,5,3,2,7,6,9,8,8,3,9,6,5,4,1,2,7,6,7,2,9,1,8,5,4,3,4,9,6,1,8,5,3,7,2,2,1,8,4,7,3,9,5,6,7,5,3,2,9,6,4,8,1,3,6,7,5,4,2,8,1,9,9,8,4,7,6,1,2,3,5,5,2,1,8,3,9,7,6,4};
+
+        puzzle = new Puzzle(grid, backtrackingRequired, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(1, puzzle.getNumSolutions());
+        assertArrayEquals(expected, solution);
+    }
+
+    @Test
+    public void has2Solutions() {
+        int[] has2Solutions = {0, 3, 9, 0, 0, 0, 1, 2, 0, 0, 0, 0, 9, 0, 7, 0, 0, 0, 8, 0, 0, 4, 0, 1, 0, 0, 6, 0, 4, 2, 0, 0, 0, 7, 9, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9, 1, 0, 0, 0, 5, 4, 0, 5, 0, 0, 1, 0, 9, 0, 0, 3, 0, 0, 0, 8, 0, 5, 0, 0, 0, 0, 1, 4, 0, 0, 0, 8, 7, 0};
+        int[][] possibleSolutions = {{4, 3, 9, 6, 5, 8, 1, 2, 7, 1, 5, 6, 9, 2, 7, 3, 8, 4, 8, 2, 7, 4, 3, 1, 9, 5, 6, 3, 4, 2, 5, 1, 6, 7, 9, 8, 7, 8, 5, 2, 9, 4, 6, 3, 1, 6, 9, 1, 7, 8, 3, 5, 4, 2, 5, 7, 8, 1, 4, 9, 2, 6, 3, 2, 6, 3, 8, 7, 5, 4, 1, 9, 9, 1, 4, 3, 6, 2, 8, 7, 5},
+                {4, 3, 9, 6, 5, 8, 1, 2, 7, 1, 5, 6, 9, 2, 7, 3, 8, 4, 8, 2, 7, 4, 3, 1, 9, 5, 6, 6, 4, 2, 5, 1, 3, 7, 9, 8, 7, 8, 5, 2, 9, 4, 6, 3, 1, 3, 9, 1, 7, 8, 6, 5, 4, 2, 5, 7, 8, 1, 4, 9, 2, 6, 3, 2, 6, 3, 8, 7, 5, 4, 1, 9, 9, 1, 4, 3, 6, 2, 8, 7, 5}};
+
+        puzzle = new Puzzle(grid, has2Solutions, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(2, puzzle.getNumSolutions());
+        assertThat(Arrays.asList(possibleSolutions), hasItems(solution));
+    }
+
+    @Test
+    public void hasManyThousandsOfSolutions() {
+        int[] hasManyThousandsOfSolutions = {0,0,0,0,0,6,0,0,0,0,5,9,0,0,0,0,0,8,2,0,0,0,0,8,0,0,0,0,4,5,0,0,0,0,0,0,0,0,3,0,0,0,0,0,0,0,0,6,0,0,3,0,5,4,0,0,0,3,2,5,0,0,6,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0};
+
+        puzzle = new Puzzle(grid, hasManyThousandsOfSolutions, SolverEngines.DANCING_LINKS);
+
+        assertEquals(Math.min(10000, Solver.MAX_SOLUTIONS), puzzle.getNumSolutions());
+    }
+
+    @Test
+    public void emptyPuzzle() {
+        int[] emptyPuzzle = new int[grid.getNumCells()];
+
+        puzzle = new Puzzle(grid, emptyPuzzle, SolverEngines.DANCING_LINKS);
+
+        assertEquals(Solver.MAX_SOLUTIONS, puzzle.getNumSolutions());
+    }
+
+    @Test
+    public void duplicateGivenBox4() {
+        int[] duplicateGivenBox4 = {0, 0, 9, 0, 7, 0, 0, 0, 5, 0, 0, 2, 1, 0, 0, 9, 0, 0, 1, 0, 0, 0, 2, 8, 0, 0, 0, 0, 7, 0, 0, 0, 5, 0, 0, 1, 0, 0, 8, 5, 1, 0, 0, 0, 0, 0, 5, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 6, 8, 0, 0, 0, 0, 0, 0, 0, 0, 2, 1, 0, 0, 0, 0, 0, 8, 7};
+
+        puzzle = new Puzzle(grid, duplicateGivenBox4, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(0, puzzle.getNumSolutions());
+        int[] zeros = new int[puzzle.getGrid().getNumCells()];
+        assertArrayEquals(zeros, solution);
+    }
+
+    @Test
+    public void noLocationsLeftFor4InBox4() {
+        int[] noLocationsLeftFor4InBox4 = {0, 9, 0, 3, 0, 0, 0, 0, 1, 0, 0, 0, 0, 8, 0, 0, 4, 6, 0, 0, 0, 0, 0, 0, 8, 0, 0, 4, 0, 5, 0, 6, 0, 0, 3, 0, 0, 0, 3, 2, 7, 5, 6, 0, 0, 0, 6, 0, 0, 1, 0, 9, 0, 4, 0, 0, 1, 0, 0, 0, 0, 0, 0, 5, 8, 0, 0, 2, 0, 0, 0, 0, 2, 0, 0, 0, 0, 7, 0, 6, 0};
+
+        puzzle = new Puzzle(grid, noLocationsLeftFor4InBox4, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(0, puzzle.getNumSolutions());
+        int[] zeros = new int[puzzle.getGrid().getNumCells()];
+        assertArrayEquals(zeros, solution);
+    }
+
+    @Test
+    public void slowToFindNoSolutions() {
+        // Too slow for Solver (see TestSolver3By3) but the column choice of dancing links finds
+        // there are no solutions quickly.
+        int[] slowToFindNoSolutions = {0,0,0,0,0,5,0,8,0,0,0,0,6,0,1,0,4,3,0,0,0,0,0,0,0,0,0,0,1,0,5,0,0,0,0,0,0,0,0,1,0,6,0,0,0,3,0,0,0,0,0,0,0,5,5,3,0,0,0,0,0,6,1,0,0,0,0,0,0,0,0,4,0,0,0,0,0,0,0,0,0};
+
+        puzzle = new Puzzle(grid, slowToFindNoSolutions, SolverEngines.DANCING_LINKS);
+        int[] solution = puzzle.getSolution();
+
+        assertEquals(0, puzzle.getNumSolutions());
+        int[] zeros = new int[puzzle.getGrid().getNumCells()];
+        assertArrayEquals(zeros, solution);
+    }
+
+    @Test
+    public void agreesWithSolverOnGeneratedPuzzles() {
+        for (int boxWidth = 2; boxWidth <= 5; boxWidth++) {
+            Grid otherGrid = new Grid(2, boxWidth);
+            Puzzle generated = new Generator(otherGrid).generatePuzzle(Difficulty.UNRATED);
+
+            puzzle = new Puzzle(otherGrid, generated.getPuzzleNums(), SolverEngines.DANCING_LINKS);
+
+            assertEquals(1, puzzle.getNumSolutions());
+            assertArrayEquals(generated.getSolution(), puzzle.getSolution());
+        }
+    }
+}
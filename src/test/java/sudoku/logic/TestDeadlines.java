@@ -0,0 +1,81 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Solving and generating should give up with a DeadlineExceededException once their deadline has
+expired or been cancelled, and otherwise be unaffected by it.
+ */
+public class TestDeadlines {
+
+    private final Grid grid = new Grid(3, 3);
+
+    @Test
+    public void solvingStopsOnceExpired() {
+        for (String name : SolverEngines.getNames()) {
+            Puzzle expired = new Puzzle(grid, new int[grid.getNumCells()], name, Deadline.after(Duration.ZERO));
+            assertThrows(DeadlineExceededException.class, expired::getSolution, name);
+            assertThrows(DeadlineExceededException.class, expired::getDifficulty, name);
+
+            Puzzle inTime = new Puzzle(grid, new int[grid.getNumCells()], name, Deadline.after(Duration.ofMinutes(1)));
+            assertEquals(Solver.MAX_SOLUTIONS, inTime.getNumSolutions(), name);
+        }
+    }
+
+    @Test
+    public void searchFinishedInTimeIsKept() {
+        // a deadline expiring after the search has finished didn't stop it
+        Deadline deadline = Deadline.none();
+        DeadlineListener untilDeadline = new DeadlineListener(deadline);
+        Puzzle puzzle = new Puzzle(grid, new int[grid.getNumCells()]);
+        assertEquals(Solver.MAX_SOLUTIONS, new Solver().solve(puzzle, Solver.MAX_SOLUTIONS, untilDeadline));
+        deadline.cancel();
+        assertFalse(untilDeadline.hasStopped());
+
+        new Solver().solve(puzzle, Solver.MAX_SOLUTIONS, untilDeadline);
+        assertTrue(untilDeadline.hasStopped());
+    }
+
+    @Test
+    public void generatingStopsOnceCancelled() throws InterruptedException {
+        Deadline deadline = Deadline.none();
+        deadline.cancel();
+        Generator generator = new Generator(grid);
+        assertThrows(DeadlineExceededException.class,
+                () -> generator.generatePuzzle(Difficulty.FIENDISH, new SplittableRandom(), deadline));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertThrows(DeadlineExceededException.class,
+                    () -> generator.generatePuzzle(Difficulty.FIENDISH, executor, 4, deadline));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void generatingWhatCanNeverBeFoundStopsAtTheDeadline() throws InterruptedException {
+        // 16x16 puzzles are only ever made as hard as propagation alone can solve, so without a
+        // deadline this would run forever
+        Generator generator = new Generator(new Grid(4, 4));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        long start = System.nanoTime();
+        try {
+            assertThrows(DeadlineExceededException.class, () -> generator.generatePuzzle(Difficulty.FIENDISH,
+                    executor, 2, Deadline.after(Duration.ofMillis(200))));
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,73 @@
+package sudoku.logic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+A puzzle steered towards a difficulty should have it, a single solution, and no clue left in which
+could be taken out without giving multiple solutions or making the puzzle harder than asked for.
+Generating with the same seed should always give the same puzzle. Steering only rates as far as the
+target allows, so a puzzle rated any higher must be harder than the target.
+ */
+public class TestGenerator {
+
+    @ParameterizedTest
+    @CsvSource({"2, 3, EASY", "2, 3, MEDIUM", "2, 4, TRICKY", "3, 3, EASY", "3, 3, MEDIUM", "3, 3, TRICKY",
+            "2, 5, MEDIUM"})
+    public void steeredPuzzlesStopAtTheTarget(int boxHeight, int boxWidth, Difficulty difficulty) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Puzzle puzzle = new Generator(grid).generatePuzzle(difficulty);
+        assertEquals(difficulty, puzzle.getDifficulty());
+        assertEquals(1, puzzle.getNumSolutions());
+
+        int[] puzzleNums = puzzle.getPuzzleNums().clone();
+        for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
+            int clue = puzzleNums[cellIndex];
+            if (clue == 0) {
+                continue;
+            }
+            puzzleNums[cellIndex] = 0;
+            Puzzle fewerClues = new Puzzle(grid, puzzleNums);
+            assertTrue(fewerClues.getNumSolutions() > 1 || fewerClues.getDifficulty() == Difficulty.TOO_DIFFICULT
+                    || fewerClues.getDifficulty().compareTo(difficulty) > 0, "cell " + cellIndex);
+            puzzleNums[cellIndex] = clue;
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 2, UNRATED", "2, 3, MEDIUM", "2, 4, FIENDISH", "3, 3, EASY", "3, 3, TRICKY", "4, 4, MEDIUM"})
+    public void sameSeedSamePuzzle(int boxHeight, int boxWidth, Difficulty difficulty) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        for (long seed = 0; seed < 3; seed++) {
+            Puzzle puzzle = new Generator(grid).generatePuzzle(difficulty, new SplittableRandom(seed));
+            Puzzle again = new Generator(grid).generatePuzzle(difficulty, new SplittableRandom(seed));
+            assertArrayEquals(puzzle.getPuzzleNums(), again.getPuzzleNums(), "seed " + seed);
+
+            Puzzle isomorph = new Generator(grid).generateIsomorph(difficulty, new SplittableRandom(seed));
+            Puzzle isomorphAgain = new Generator(grid).generateIsomorph(difficulty, new SplittableRandom(seed));
+            assertArrayEquals(isomorph.getPuzzleNums(), isomorphAgain.getPuzzleNums(), "seed " + seed);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 2", "2, 3", "2, 4", "2, 5", "3, 3", "3, 4", "4, 4"})
+    public void ratedAboveTheMaximumIsHarder(int boxHeight, int boxWidth) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Puzzle puzzle = new Generator(grid).generatePuzzle(grid.getNumDigits() > 10 ? Difficulty.MEDIUM
+                : Difficulty.UNRATED);
+        for (Difficulty difficulty : new Difficulty[]{Difficulty.EASY, Difficulty.MEDIUM, Difficulty.TRICKY}) {
+            for (int rating = 1; rating <= 8; rating++) {
+                if (rating <= Puzzle.maxRating(grid, difficulty)) {
+                    continue;
+                }
+                Puzzle rated = Puzzle.withRating(grid, puzzle.getPuzzleNums(), puzzle.getSolution(), rating,
+                        Difficulty.UNRATED);
+                assertTrue(rated.getDifficulty().compareTo(difficulty) > 0, difficulty + " rating " + rating);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+An isomorph of a puzzle should be a different looking puzzle with the same solution, once relabelled
+and moved, and the same difficulty, which solving and rating it afresh should agree with. Isomorphs
+made in bulk should each be of a different seed, with no fresh puzzle generated once cancelled.
+ */
+public class TestIsomorphs {
+
+    @ParameterizedTest
+    @CsvSource({"2, 3, 2, 3", "2, 3, 3, 2", "2, 5, 5, 2", "3, 3, 3, 3", "3, 4, 4, 3", "4, 4, 4, 4"})
+    public void isomorphsSolveAndRateTheSame(int seedBoxHeight, int seedBoxWidth, int boxHeight, int boxWidth) {
+        Puzzle seed = new Generator(new Grid(seedBoxHeight, seedBoxWidth)).generatePuzzle(Difficulty.UNRATED);
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Generator generator = new Generator(grid);
+
+        for (int n = 0; n < 10; n++) {
+            Puzzle isomorph = generator.isomorph(seed);
+            assertSame(grid, isomorph.getGrid());
+            assertEquals(seed.getNumUnknowns(), isomorph.getNumUnknowns());
+
+            Puzzle fresh = new Puzzle(grid, isomorph.getPuzzleNums());
+            assertEquals(1, fresh.getNumSolutions());
+            assertArrayEquals(fresh.getSolution(), isomorph.getSolution());
+            assertEquals(seed.getRating(), fresh.getRating());
+            assertEquals(seed.getDifficulty(), fresh.getDifficulty());
+            assertEquals(seed.getDifficulty(), isomorph.getDifficulty());
+        }
+    }
+
+    @Test
+    public void seedMustFitTheGrid() {
+        Puzzle seed = new Generator(new Grid(2, 3)).generatePuzzle(Difficulty.UNRATED);
+        assertThrows(IllegalArgumentException.class, () -> new Generator(new Grid(2, 4)).isomorph(seed));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"2, 2, EASY", "2, 3, TRICKY", "3, 2, MEDIUM", "2, 4, FIENDISH", "5, 2, FIENDISH", "3, 3, EASY",
+            "3, 3, MEDIUM", "3, 3, TRICKY", "3, 3, FIENDISH", "4, 3, MEDIUM", "5, 5, MEDIUM"})
+    public void bankHasSeedsOfEachDifficulty(int boxHeight, int boxWidth, Difficulty difficulty) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        assertNotNull(SeedBank.randomSeed(grid, difficulty, new SplittableRandom()));
+
+        Puzzle puzzle = new Generator(grid).generateIsomorph(difficulty);
+        assertEquals(difficulty, puzzle.getDifficulty());
+        assertEquals(1, puzzle.getNumSolutions());
+    }
+
+    @Test
+    public void bulkIsomorphsAreNeverIsomorphsOfEachOther() {
+        // more than the bank has seeds, so the rest are generated
+        Grid grid = new Grid(3, 3);
+        int numSeeds = SeedBank.seeds(grid, Difficulty.EASY).size();
+        Set<Long> fingerprints = new HashSet<>();
+        assertEquals(numSeeds + 2, new Generator(grid).generateIsomorphs(Difficulty.EASY, numSeeds + 2,
+                new SplittableRandom(), puzzle -> puzzle.getDifficulty() == Difficulty.EASY
+                        && fingerprints.add(CanonicalForm.fingerprint(puzzle))));
+        assertTrue(SeedBank.seeds(grid, Difficulty.EASY).size() > numSeeds);
+    }
+
+    @Test
+    public void bulkIsomorphsStopWhenCancelled() {
+        // the seeds are used up in microseconds, but no fresh puzzle is generated once cancelled
+        Grid grid = new Grid(2, 4);
+        int numSeeds = SeedBank.seeds(grid, Difficulty.TRICKY).size();
+        assertEquals(numSeeds, new Generator(grid).generateIsomorphs(Difficulty.TRICKY, numSeeds + 5,
+                new SplittableRandom(), () -> true, puzzle -> true));
+        assertEquals(numSeeds, SeedBank.seeds(grid, Difficulty.TRICKY).size());
+    }
+}
@@ -0,0 +1,57 @@
+package sudoku.logic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Generate puzzles on the 12x12, 16x16 and 25x25 grids, check each has a single, properly filled in
+solution and that every solver engine agrees on it.
+ */
+public class TestLargeGrids {
+
+    private static void assertFilledIn(Grid grid, int[] solution) {
+        for (int[] block : grid.getBlockIndices()) {
+            int[] digits = new int[grid.getNumDigits()];
+            for (int i = 0; i < block.length; i++) {
+                digits[i] = solution[block[i]];
+            }
+            Arrays.sort(digits);
+            for (int i = 0; i < digits.length; i++) {
+                assertEquals(i + 1, digits[i]);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"3, 4", "4, 3", "4, 4", "5, 5"})
+    public void generateAndSolve(int boxHeight, int boxWidth) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        Puzzle puzzle = new Generator(grid).generatePuzzle(Difficulty.MEDIUM);
+
+        assertEquals(1, puzzle.getNumSolutions());
+        assertEquals(Difficulty.MEDIUM, puzzle.getDifficulty());
+        assertFilledIn(grid, puzzle.getSolution());
+        for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
+            if (puzzle.getPuzzleNums()[cellIndex] != 0) {
+                assertEquals(puzzle.getPuzzleNums()[cellIndex], puzzle.getSolution()[cellIndex]);
+            }
+        }
+
+        for (String name : SolverEngines.getNames()) {
+            SolverEngine engine = SolverEngines.create(name);
+            assertEquals(1, engine.solve(new Puzzle(grid, puzzle.getPuzzleNums())), name);
+            assertArrayEquals(puzzle.getSolution(), engine.getSolution(), name);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"3, 4", "4, 4", "5, 5"})
+    public void randomSolutionIsFilledIn(int boxHeight, int boxWidth) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        assertFilledIn(grid, SolverEngines.create(grid).generateRandomSolution(grid));
+    }
+}
@@ -0,0 +1,80 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Packing should lose nothing, for every grid size, and for grids of up to 15 digits each cell should
+take a nibble, first cell highest, so the packed bytes read in hex as the puzzle's digits.
+ */
+public class TestPackedPuzzle {
+
+    @Test
+    public void packThenUnpack() {
+        int[][] boxSizes = {{2, 2}, {2, 3}, {3, 2}, {3, 3}, {2, 5}, {3, 4}, {4, 4}, {5, 5}};
+        for (int[] boxSize : boxSizes) {
+            Grid grid = new Grid(boxSize[0], boxSize[1]);
+            Puzzle puzzle = new Generator(grid).generatePuzzle(grid.getNumDigits() > 10 ? Difficulty.MEDIUM
+                    : Difficulty.UNRATED);
+            PackedPuzzle packed = PackedPuzzle.pack(puzzle);
+            assertEquals(grid.getNumDigits() < 16 ? (grid.getNumCells() + 1) / 2 : (grid.getNumCells() * 5 + 7) / 8,
+                    packed.getPackedPuzzleNums().length);
+
+            Puzzle unpacked = packed.unpack();
+            assertArrayEquals(puzzle.getPuzzleNums(), unpacked.getPuzzleNums());
+            assertArrayEquals(puzzle.getSolution(), unpacked.getSolution());
+            assertEquals(1, unpacked.getNumSolutions());
+            assertEquals(puzzle.getRating(), unpacked.getRating());
+            assertEquals(puzzle.getDifficulty(), unpacked.getDifficulty());
+            assertEquals(puzzle.getNumUnknowns(), unpacked.getNumUnknowns());
+        }
+    }
+
+    @Test
+    public void everyDigitInEveryCell() {
+        // the largest digit in each position of a 16 or 25 digit grid straddles bytes differently
+        for (int[] boxSize : new int[][]{{3, 3}, {4, 4}, {5, 5}}) {
+            Grid grid = new Grid(boxSize[0], boxSize[1]);
+            for (int digit = 0; digit <= grid.getNumDigits(); digit++) {
+                int[] cells = new int[grid.getNumCells()];
+                for (int cellIndex = 0; cellIndex < cells.length; cellIndex++) {
+                    cells[cellIndex] = (digit + cellIndex) % (grid.getNumDigits() + 1);
+                }
+                assertArrayEquals(cells, PackedPuzzle.unpackCells(PackedPuzzle.packCells(cells, grid), grid));
+            }
+        }
+    }
+
+    @Test
+    public void nibblesReadAsDigits() {
+        Grid grid = new Grid(2, 5);
+        int[] cells = new int[grid.getNumCells()];
+        cells[0] = 10;
+        cells[1] = 1;
+        cells[2] = 9;
+        cells[99] = 7;
+        byte[] packed = PackedPuzzle.packCells(cells, grid);
+        assertEquals(50, packed.length);
+        assertEquals((byte) 0xa1, packed[0]);
+        assertEquals((byte) 0x90, packed[1]);
+        assertEquals((byte) 0x07, packed[49]);
+    }
+
+    @Test
+    public void badCellsAreRejected() {
+        Grid grid = new Grid(3, 3);
+        assertThrows(IllegalArgumentException.class, () -> PackedPuzzle.packCells(new int[80], grid));
+        int[] cells = new int[81];
+        cells[40] = 10;
+        assertThrows(IllegalArgumentException.class, () -> PackedPuzzle.packCells(cells, grid));
+        assertThrows(IllegalArgumentException.class, () -> PackedPuzzle.unpackCells(new byte[40], grid));
+        byte[] packed = new byte[41];
+        packed[3] = (byte) 0xf0;
+        assertThrows(IllegalArgumentException.class, () -> PackedPuzzle.unpackCells(packed, grid));
+
+        int[] twoSolutions = new int[81];
+        twoSolutions[0] = 1;
+        assertThrows(IllegalArgumentException.class, () -> PackedPuzzle.pack(new Puzzle(grid, twoSolutions)));
+    }
+}
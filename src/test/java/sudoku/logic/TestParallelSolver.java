@@ -0,0 +1,109 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestParallelSolver {
+
+    private final Grid grid = new Grid(3, 3);
+    private final ParallelSolver solver = new ParallelSolver(new ForkJoinPool(4));
+
+    @Test
+    public void hardPuzzle() {
+        // c.f. https://abcnews.go.com/blogs/headlines/2012/06/can-you-solve-the-hardest-ever-sudoku
+        int[] hardPuzzle = {8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, 6, 0, 0, 0, 0, 0, 0, 7, 0, 0, 9, 0, 2, 0, 0, 0, 5, 0, 0, 0, 7, 0, 0, 0, 0, 0, 0, 0, 4, 5, 7, 0, 0, 0, 0, 0, 1, 0, 0, 0, 3, 0, 0, 0, 1, 0, 0, 0, 0, 6, 8, 0, 0, 8, 5, 0, 0, 0, 1, 0, 0, 9, 0, 0, 0, 0, 4, 0, 0};
+        Puzzle puzzle = new Puzzle(grid, hardPuzzle, SolverEngines.BACKTRACKING);
+
+        assertEquals(1, solver.countSolutions(new Puzzle(grid, hardPuzzle), Long.MAX_VALUE));
+        assertArrayEquals(puzzle.getSolution(), solver.getSolution());
+    }
+
+    @Test
+    public void exactCounts() {
+        int[] has10Solutions = {5, 9, 0, 0, 0, 0, 0, 4, 8, 6, 0, 8, 0, 0, 0, 3, 0, 7, 0, 0, 0, 2, 0, 1, 0, 0, 0, 0, 0, 0, 0, 4, 0, 0, 0, 0, 0, 7, 5, 3, 0, 6, 9, 8, 0, 0, 0, 0, 0, 9, 0, 0, 0, 0, 0, 0, 0, 8, 0, 3, 0, 0, 0, 2, 0, 6, 0, 0, 0, 7, 0, 9, 3, 4, 0, 0, 0, 0, 0, 6, 5};
+        int[] has125Solutions = {0, 0, 0, 3, 1, 6, 5, 0, 0, 8, 0, 0, 5, 0, 0, 1, 0, 0, 0, 1, 0, 8, 9, 7, 2, 4, 0, 9, 0, 1, 0, 8, 5, 0, 2, 0, 0, 0, 0, 9, 0, 1, 0, 0, 0, 0, 4, 0, 2, 6, 3, 0, 0, 1, 0, 5, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 4, 0, 9, 0, 0, 2, 0, 0, 6, 1, 0, 8, 0, 0, 0};
+
+        assertEquals(10, solver.countSolutions(new Puzzle(grid, has10Solutions), Long.MAX_VALUE));
+        assertEquals(125, solver.countSolutions(new Puzzle(grid, has125Solutions), Long.MAX_VALUE));
+        // there are 288 ways to fill an empty 2x2 grid
+        assertEquals(288, solver.countSolutions(new Puzzle(new Grid(2, 2), new int[16]), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void stopsAtTheLimit() {
+        int[] emptyPuzzle = new int[grid.getNumCells()];
+        Puzzle puzzle = new Puzzle(grid, emptyPuzzle);
+
+        assertEquals(1000, solver.countSolutions(puzzle, 1000));
+        assertEquals(1, solver.countSolutions(puzzle, 1));
+        int[] solution = solver.getSolution();
+        assertEquals(1, new Puzzle(grid, solution).getNumSolutions());
+        assertThrows(IllegalArgumentException.class, () -> solver.countSolutions(puzzle, 0));
+    }
+
+    @Test
+    public void slowListenerHoldsNoWorkers() throws Exception {
+        // The listener is only ever called on this thread, and while it is busy the pool can still
+        // run other tasks. The first call waits for a task submitted to the pool, which can only run
+        // if the searches, which soon fill the queue and wait for the listener, aren't holding every
+        // worker.
+        int[] has125Solutions = {0, 0, 0, 3, 1, 6, 5, 0, 0, 8, 0, 0, 5, 0, 0, 1, 0, 0, 0, 1, 0, 8, 9, 7, 2, 4, 0, 9, 0, 1, 0, 8, 5, 0, 2, 0, 0, 0, 0, 9, 0, 1, 0, 0, 0, 0, 4, 0, 2, 6, 3, 0, 0, 1, 0, 5, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 4, 0, 9, 0, 0, 2, 0, 0, 6, 1, 0, 8, 0, 0, 0};
+        Puzzle puzzle = new Puzzle(grid, has125Solutions);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Thread caller = Thread.currentThread();
+        CountDownLatch taskRan = new CountDownLatch(1);
+        long[] numCalls = new long[1];
+        try {
+            long found = new ParallelSolver(pool).solve(puzzle, Long.MAX_VALUE, solution -> {
+                assertSame(caller, Thread.currentThread());
+                assertEquals(1, new Puzzle(grid, solution).getNumSolutions());
+                if (numCalls[0]++ == 0) {
+                    pool.execute(taskRan::countDown);
+                    try {
+                        taskRan.await();
+                    } catch (InterruptedException ex) {
+                        throw new AssertionError(ex);
+                    }
+                }
+                return true;
+            });
+            assertEquals(0, taskRan.getCount());
+            assertEquals(125, found);
+            assertEquals(125, numCalls[0]);
+
+            // and the listener can stop the search as before
+            numCalls[0] = 0;
+            assertEquals(10, new ParallelSolver(pool).solve(puzzle, Long.MAX_VALUE, solution -> ++numCalls[0] < 10));
+            assertEquals(10, numCalls[0]);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void noSolutions() {
+        int[] duplicateGivenBox4 = {0, 0, 9, 0, 7, 0, 0, 0, 5, 0, 0, 2, 1, 0, 0, 9, 0, 0, 1, 0, 0, 0, 2, 8, 0, 0, 0, 0, 7, 0, 0, 0, 5, 0, 0, 1, 0, 0, 8, 5, 1, 0, 0, 0, 0, 0, 5, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 6, 8, 0, 0, 0, 0, 0, 0, 0, 0, 2, 1, 0, 0, 0, 0, 0, 8, 7};
+
+        assertEquals(0, solver.countSolutions(new Puzzle(grid, duplicateGivenBox4), Long.MAX_VALUE));
+        assertNull(solver.getSolution());
+    }
+
+    @Test
+    public void agreesWithSolverOnGeneratedPuzzles() {
+        for (int[] boxSize : new int[][] {{2, 2}, {2, 3}, {2, 4}, {2, 5}, {3, 3}}) {
+            Grid grid = new Grid(boxSize[0], boxSize[1]);
+            Generator generator = new Generator(grid);
+            for (int n = 0; n < 5; n++) {
+                Puzzle puzzle = generator.generatePuzzle(Difficulty.UNRATED);
+                Puzzle parallelPuzzle = new Puzzle(grid, puzzle.getPuzzleNums(), SolverEngines.PARALLEL);
+
+                assertEquals(1, parallelPuzzle.getNumSolutions());
+                assertArrayEquals(puzzle.getSolution(), parallelPuzzle.getSolution());
+            }
+        }
+    }
+}
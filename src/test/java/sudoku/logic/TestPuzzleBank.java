@@ -0,0 +1,109 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Puzzles written to a bank and mapped back in should come out exactly as they went in, solution,
+rating and difficulty included, for every size of cell packing, leaving out any isomorphs.
+ */
+public class TestPuzzleBank {
+
+    @TempDir
+    Path tempDir;
+
+    private static void assertSamePuzzle(Puzzle expected, Puzzle actual) {
+        assertEquals(expected.getGrid().getNumDigits(), actual.getGrid().getNumDigits());
+        assertArrayEquals(expected.getPuzzleNums(), actual.getPuzzleNums());
+        assertArrayEquals(expected.getSolution(), actual.getSolution());
+        assertEquals(1, actual.getNumSolutions());
+        assertEquals(expected.getRating(), actual.getRating());
+        assertEquals(expected.getDifficulty(), actual.getDifficulty());
+        assertEquals(expected.getNumUnknowns(), actual.getNumUnknowns());
+    }
+
+    @Test
+    public void writeThenOpen() throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        int[][] boxSizes = {{2, 2}, {2, 3}, {3, 2}, {3, 3}, {2, 5}, {4, 4}, {5, 5}};
+        for (int[] boxSize : boxSizes) {
+            Generator generator = new Generator(new Grid(boxSize[0], boxSize[1]));
+            for (int n = 0; n < 3; n++) {
+                puzzles.add(generator.generatePuzzle(boxSize[0] * boxSize[1] > 10 ? Difficulty.MEDIUM : Difficulty.UNRATED));
+            }
+        }
+        // an isomorph of a puzzle already there is left out
+        Set<Long> fingerprints = new HashSet<>();
+        puzzles.removeIf(puzzle -> !fingerprints.add(CanonicalForm.fingerprint(puzzle)));
+        List<Puzzle> withIsomorphs = new ArrayList<>(puzzles);
+        for (Puzzle puzzle : puzzles) {
+            withIsomorphs.add(new Generator(puzzle.getGrid()).isomorph(puzzle));
+        }
+        Path path = tempDir.resolve("bank.bin");
+        PuzzleBank.write(path, withIsomorphs);
+        PuzzleBank bank = PuzzleBank.open(path);
+
+        for (int[] boxSize : boxSizes) {
+            for (Difficulty difficulty : Difficulty.values()) {
+                List<Puzzle> expected = new ArrayList<>();
+                for (Puzzle puzzle : puzzles) {
+                    if (puzzle.getGrid().getBoxHeight() == boxSize[0] && puzzle.getGrid().getBoxWidth() == boxSize[1]
+                            && puzzle.getDifficulty() == difficulty) {
+                        expected.add(puzzle);
+                    }
+                }
+                assertEquals(expected.size(), bank.size(boxSize[0], boxSize[1], difficulty));
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSamePuzzle(expected.get(i), bank.get(boxSize[0], boxSize[1], difficulty, i));
+                }
+                // every puzzle once, then no more
+                Set<String> taken = new HashSet<>();
+                assertEquals(expected.size(), bank.randomPuzzles(boxSize[0], boxSize[1], difficulty, 10,
+                        new SplittableRandom(), puzzle -> taken.add(Arrays.toString(puzzle.getPuzzleNums()))));
+                assertEquals(expected.size(), taken.size());
+
+                Puzzle random = bank.randomPuzzle(boxSize[0], boxSize[1], difficulty, new SplittableRandom());
+                if (expected.isEmpty()) {
+                    assertNull(random);
+                } else {
+                    assertEquals(difficulty, random.getDifficulty());
+                    assertEquals(1, new Puzzle(random.getGrid(), random.getPuzzleNums()).getNumSolutions());
+                }
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> bank.get(3, 3, Difficulty.INVALID, 0));
+    }
+
+    @Test
+    public void emptyBankHasNothing() {
+        assertEquals(0, PuzzleBank.empty().size(3, 3, Difficulty.EASY));
+        assertNull(PuzzleBank.empty().randomPuzzle(3, 3, Difficulty.EASY, new SplittableRandom()));
+    }
+
+    @Test
+    public void badFilesAreRejected() throws IOException {
+        Path path = tempDir.resolve("not-a-bank.bin");
+        Files.write(path, "not a puzzle bank".getBytes());
+        assertThrows(IOException.class, () -> PuzzleBank.open(path));
+
+        Grid grid = new Grid(2, 2);
+        int[] noSolution = new int[grid.getNumCells()];
+        noSolution[0] = 1;
+        noSolution[1] = 1;
+        List<Puzzle> invalid = new ArrayList<>();
+        invalid.add(new Puzzle(grid, noSolution));
+        assertThrows(IllegalArgumentException.class, () -> PuzzleBank.write(tempDir.resolve("invalid.bin"), invalid));
+    }
+}
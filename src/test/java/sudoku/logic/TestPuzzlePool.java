@@ -0,0 +1,135 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Refills run straight away on the calling thread here, or are queued for the test to run itself, so
+the fill levels can be checked as soon as take or a refill returns.
+ */
+public class TestPuzzlePool {
+
+    private static PuzzlePool.FillLevel fillLevel(PuzzlePool pool, int boxHeight, int boxWidth, Difficulty difficulty) {
+        for (PuzzlePool.FillLevel fillLevel : pool.getFillLevels()) {
+            if (fillLevel.getBoxHeight() == boxHeight && fillLevel.getBoxWidth() == boxWidth
+                    && fillLevel.getDifficulty() == difficulty) {
+                return fillLevel;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void firstTakeMissesThenIsServedFromThePool() {
+        PuzzlePool pool = new PuzzlePool(Runnable::run, 10, 2, 4);
+
+        assertNull(pool.take(2, 3, Difficulty.MEDIUM));
+        PuzzlePool.FillLevel fillLevel = fillLevel(pool, 2, 3, Difficulty.MEDIUM);
+        assertEquals(4, fillLevel.getHighWatermark());
+        assertEquals(2, fillLevel.getLowWatermark());
+        assertEquals(4, fillLevel.getSize());
+
+        Puzzle puzzle = pool.take(2, 3, Difficulty.MEDIUM);
+        assertNotNull(puzzle);
+        assertEquals(Difficulty.MEDIUM, puzzle.getDifficulty());
+        assertEquals(1, puzzle.getNumSolutions());
+        fillLevel = fillLevel(pool, 2, 3, Difficulty.MEDIUM);
+        assertEquals(3, fillLevel.getSize());
+        assertEquals(2, fillLevel.getRequests());
+        assertEquals(1, fillLevel.getMisses());
+    }
+
+    @Test
+    public void watermarksFollowTheRequests() {
+        List<Runnable> refills = new ArrayList<>();
+        PuzzlePool pool = new PuzzlePool(refills::add, 20, 1, 20);
+
+        for (int n = 0; n < 9; n++) {
+            pool.take(3, 3, Difficulty.EASY);
+        }
+        pool.take(2, 2, Difficulty.EASY);
+
+        // one refill per bucket, the 3x3 one still waiting to run
+        assertEquals(2, refills.size());
+        assertEquals(18, fillLevel(pool, 3, 3, Difficulty.EASY).getHighWatermark());
+        assertEquals(9, fillLevel(pool, 3, 3, Difficulty.EASY).getLowWatermark());
+        assertEquals(2, fillLevel(pool, 2, 2, Difficulty.EASY).getHighWatermark());
+
+        // after enough requests the old ones are forgotten
+        for (int n = 0; n < 40; n++) {
+            pool.take(2, 2, Difficulty.EASY);
+        }
+        assertTrue(fillLevel(pool, 2, 2, Difficulty.EASY).getHighWatermark() > 15);
+        assertTrue(fillLevel(pool, 3, 3, Difficulty.EASY).getHighWatermark() < 5);
+    }
+
+    @Test
+    public void refillsTakeTurns() {
+        List<Runnable> refills = new ArrayList<>();
+        PuzzlePool pool = new PuzzlePool(refills::add, 20, 10, 10);
+
+        pool.take(3, 3, Difficulty.EASY);
+        pool.take(3, 3, Difficulty.MEDIUM);
+        assertEquals(2, refills.size());
+
+        // each refill generates a batch then waits behind the other bucket's refill
+        refills.remove(0).run();
+        assertEquals(PuzzlePool.REFILL_BATCH_SIZE, fillLevel(pool, 3, 3, Difficulty.EASY).getSize());
+        assertEquals(2, refills.size());
+        refills.remove(0).run();
+        assertEquals(PuzzlePool.REFILL_BATCH_SIZE, fillLevel(pool, 3, 3, Difficulty.MEDIUM).getSize());
+
+        // until each bucket reaches its high watermark
+        while (!refills.isEmpty()) {
+            refills.remove(0).run();
+        }
+        assertEquals(10, fillLevel(pool, 3, 3, Difficulty.EASY).getSize());
+        assertEquals(10, fillLevel(pool, 3, 3, Difficulty.MEDIUM).getSize());
+    }
+
+    @Test
+    public void noIsomorphsInABucket() {
+        // there are only a few dozen different puzzles with 2x2 boxes, too few to fill the bucket
+        PuzzlePool pool = new PuzzlePool(Runnable::run, 100, 100, 100);
+
+        assertNull(pool.take(2, 2, Difficulty.EASY));
+        int size = fillLevel(pool, 2, 2, Difficulty.EASY).getSize();
+        assertTrue(size > 10 && size < 50);
+        Set<Long> fingerprints = new HashSet<>();
+        for (int n = 0; n < size; n++) {
+            assertTrue(fingerprints.add(CanonicalForm.fingerprint(pool.take(2, 2, Difficulty.EASY))));
+        }
+    }
+
+    @Test
+    public void maxHighWatermarkOfZeroTurnsThePoolOff() {
+        PuzzlePool pool = new PuzzlePool(Runnable::run, 10, 0, 0);
+
+        assertNull(pool.take(2, 2, Difficulty.EASY));
+        assertNull(pool.take(2, 2, Difficulty.EASY));
+        assertEquals(0, fillLevel(pool, 2, 2, Difficulty.EASY).getSize());
+        assertEquals(2, fillLevel(pool, 2, 2, Difficulty.EASY).getMisses());
+    }
+
+    @Test
+    public void noRefillsOnceClosed() {
+        List<Runnable> refills = new ArrayList<>();
+        PuzzlePool pool = new PuzzlePool(refills::add, 10, 2, 4);
+        pool.close();
+
+        assertNull(pool.take(2, 2, Difficulty.EASY));
+        assertTrue(refills.isEmpty());
+    }
+
+    @Test
+    public void badWatermarks() {
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(Runnable::run, 0, 2, 4));
+        assertThrows(IllegalArgumentException.class, () -> new PuzzlePool(Runnable::run, 10, 5, 4));
+    }
+}
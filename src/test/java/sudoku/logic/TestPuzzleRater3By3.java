@@ -180,6 +180,50 @@ public class TestPuzzleRater3By3 {
 
     }
 
+    @Test
+    public void pointing() {
+        int[] pointing = {0, 0, 0, 0, 0, 2, 4, 0, 0, 0, 7, 0, 8, 0, 0, 0, 5, 0, 0, 0, 0, 0, 1, 0, 0, 0, 8, 3, 0, 0, 0, 7, 0, 0, 0, 6, 0, 0, 5, 4, 8, 9, 3, 0, 0, 8, 0, 0, 0, 6, 0, 0, 0, 4, 7, 0, 0, 0, 0, 0, 0, 0, 2, 0, 6, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9, 3, 0, 5, 0, 0, 0};
+        int[] expected = {9, 8, 6, 7, 5, 2, 4, 1, 3, 4, 7, 1, 8, 3, 6, 2, 5, 9, 5, 3, 2, 9, 1, 4, 7, 6, 8, 3, 9, 4, 5, 7, 1, 8, 2, 6, 6, 2, 5, 4, 8, 9, 3, 7, 1, 8, 1, 7, 2, 6, 3, 5, 9, 4, 7, 5, 3, 6, 9, 8, 1, 4, 2, 2, 6, 8, 1, 4, 7, 9, 3, 5, 1, 4, 9, 3, 2, 5, 6, 8, 7};
+
+        puzzle = new Puzzle(grid, pointing);
+        int difficulty = rater.rate(puzzle);
+        int[] solution = rater.getPartialSolution();
+        // Methods used:
+        // Last Digit
+        // Sole Location in a Box
+        // Sole Location in a Row/Column
+        // Sole Digit
+        // Candidates, Sole Candidate
+        // Naked Pair
+        // Naked Triple
+        // Pointing
+
+        assertEquals(7, difficulty);
+        assertArrayEquals(expected, solution);
+    }
+
+    @Test
+    public void xWing() {
+        int[] xWing = {0, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 7, 0, 6, 0, 0, 0, 0, 7, 0, 1, 0, 2, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 4, 0, 7, 6, 0, 0, 0, 1, 2, 0, 4, 0, 0, 5, 0, 7, 0, 0, 3, 0, 5, 9, 0, 3, 0, 7, 0, 0, 0, 0, 1, 0, 2, 0, 4, 0, 0, 0, 0, 0, 1, 0, 6, 0, 0, 0};
+        int[] expected = {1, 2, 5, 6, 8, 3, 9, 4, 7, 8, 4, 3, 9, 7, 2, 6, 5, 1, 9, 6, 7, 4, 1, 5, 2, 3, 8, 3, 9, 8, 2, 6, 1, 5, 7, 4, 5, 7, 6, 3, 4, 8, 1, 2, 9, 4, 1, 2, 5, 9, 7, 8, 6, 3, 2, 5, 9, 8, 3, 4, 7, 1, 6, 6, 3, 1, 7, 2, 9, 4, 8, 5, 7, 8, 4, 1, 5, 6, 3, 9, 2};
+
+        puzzle = new Puzzle(grid, xWing);
+        int difficulty = rater.rate(puzzle);
+        int[] solution = rater.getPartialSolution();
+        // Methods used:
+        // Last Digit
+        // Sole Location in a Box
+        // Sole Location in a Row/Column
+        // Candidates, Sole Candidate, Sole Location
+        // Naked Pair
+        // Box/Line Reduction
+        // X-Wing
+
+        assertEquals(8, difficulty);
+        assertArrayEquals(expected, solution);
+        assertEquals(0, rater.rate(puzzle, 7));
+    }
+
     /*
     Valid puzzles currently beyond the scope of the rater.
     */
@@ -0,0 +1,118 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/*
+Once a Solver has solved a puzzle it should be able to solve more of the same size without allocating
+anything, whether or not a deadline can stop it, and likewise a PuzzleRater rating them. This is
+checked with the JVM's count of the bytes allocated by this thread.
+ */
+public class TestSolverAllocation {
+
+    // each test's work is measured this many times, see allocatedBytes
+    private static final int ROUNDS = 3;
+
+    private final Grid grid = new Grid(3, 3);
+
+    private final Puzzle[] puzzles = {
+            // extremely difficult, a single solution
+            new Puzzle(grid, new int[] {0, 0, 8, 9, 0, 7, 0, 5, 0, 0, 7, 0, 0, 4, 0, 0, 1, 0, 0, 6, 0, 5, 0, 1, 0, 0, 7, 6, 3, 0, 0, 0, 0, 9, 0, 0, 0, 0, 9, 0, 0, 0, 8, 0, 0, 0, 0, 7, 4, 0, 0, 0, 3, 5, 7, 0, 0, 6, 0, 3, 0, 2, 0, 0, 4, 0, 0, 7, 0, 0, 6, 0, 0, 0, 6, 1, 0, 4, 7, 0, 0}),
+            // has 125 solutions
+            new Puzzle(grid, new int[] {0, 0, 0, 3, 1, 6, 5, 0, 0, 8, 0, 0, 5, 0, 0, 1, 0, 0, 0, 1, 0, 8, 9, 7, 2, 4, 0, 9, 0, 1, 0, 8, 5, 0, 2, 0, 0, 0, 0, 9, 0, 1, 0, 0, 0, 0, 4, 0, 2, 6, 3, 0, 0, 1, 0, 5, 0, 0, 0, 0, 0, 1, 0, 1, 0, 0, 4, 0, 9, 0, 0, 2, 0, 0, 6, 1, 0, 8, 0, 0, 0}),
+            // no locations left for 1 in row 4, no solutions
+            new Puzzle(grid, new int[] {9, 0, 0, 1, 0, 0, 0, 0, 4, 0, 1, 4, 0, 3, 0, 8, 0, 0, 0, 0, 3, 0, 0, 0, 0, 9, 0, 0, 0, 0, 7, 0, 8, 0, 0, 1, 8, 0, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, 0, 0, 2, 1, 0, 0, 0, 0, 7, 0, 0, 0, 9, 0, 4, 0, 5, 0, 0, 5, 0, 0, 0, 1, 6, 0, 0, 3}),
+            // empty
+            new Puzzle(grid, new int[81])
+    };
+
+    private static long allocatedBytes(Runnable work) {
+        // The bytes allocated by this thread doing the work, the least of a few rounds, so that a
+        // one-off allocation by the JVM rather than by the work, e.g. while compiling, isn't counted.
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // reading the counter may itself allocate, so take that off
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            before = threads.getThreadAllocatedBytes(threadId);
+            work.run();
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - before - overhead);
+        }
+        return allocated;
+    }
+
+    @Test
+    public void solvingAgainAllocatesNothing() {
+        Solver solver = new Solver();
+        for (Puzzle puzzle : puzzles) {
+            solver.solve(puzzle);
+        }
+
+        long[] numSolutions = new long[1];
+        long allocated = allocatedBytes(() -> {
+            for (int n = 0; n < 100; n++) {
+                for (Puzzle puzzle : puzzles) {
+                    numSolutions[0] += solver.solve(puzzle);
+                }
+            }
+        });
+
+        assertEquals(ROUNDS * 100 * 5, numSolutions[0]);
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void solvingUntilADeadlineAllocatesNothing() {
+        // as Puzzle solves, with a listener which only stops the search, so no solution is copied
+        Solver solver = new Solver();
+        DeadlineListener untilDeadline = new DeadlineListener(Deadline.none());
+        for (Puzzle puzzle : puzzles) {
+            solver.solve(puzzle, Solver.MAX_SOLUTIONS, untilDeadline);
+        }
+
+        long[] numSolutions = new long[1];
+        long allocated = allocatedBytes(() -> {
+            for (int n = 0; n < 100; n++) {
+                for (Puzzle puzzle : puzzles) {
+                    numSolutions[0] += solver.solve(puzzle, Solver.MAX_SOLUTIONS, untilDeadline);
+                }
+            }
+        });
+
+        assertEquals(ROUNDS * 100 * 5, numSolutions[0]);
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void ratingAgainAllocatesNothing() {
+        // the solutions are found, and kept by each Puzzle, before counting
+        PuzzleRater rater = new PuzzleRater();
+        int firstRatings = 0;
+        for (Puzzle puzzle : puzzles) {
+            firstRatings += rater.rate(puzzle);
+        }
+
+        long[] ratings = new long[1];
+        long allocated = allocatedBytes(() -> {
+            for (int n = 0; n < 100; n++) {
+                for (Puzzle puzzle : puzzles) {
+                    ratings[0] += rater.rate(puzzle);
+                }
+            }
+        });
+
+        assertEquals(ROUNDS * 100 * firstRatings, ratings[0]);
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,127 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSolverEngines {
+
+    private final Grid grid = new Grid(2, 3);
+
+    @Test
+    public void unknownEngine() {
+        assertThrows(IllegalArgumentException.class, () -> SolverEngines.create("no_such_engine"));
+        assertThrows(IllegalArgumentException.class, () -> SolverEngines.select(2, 3, "no_such_engine"));
+    }
+
+    @Test
+    public void selectEngineForGridSize() {
+        SolverEngines.select(2, 3, SolverEngines.DANCING_LINKS);
+        try {
+            assertTrue(SolverEngines.create(grid) instanceof DancingLinksSolver);
+            assertTrue(SolverEngines.create(new Grid(3, 2)) instanceof Solver);
+        } finally {
+            SolverEngines.select(2, 3, SolverEngines.BACKTRACKING);
+        }
+    }
+
+    @Test
+    public void registeredEngineUsedByName() {
+        int[] solved = {1, 2, 3, 4, 5, 6, 4, 5, 6, 1, 2, 3, 2, 3, 1, 5, 6, 4, 5, 6, 4, 2, 3, 1, 3, 1, 2, 6, 4, 5, 6, 4, 5, 3, 1, 2};
+        SolverEngines.register("test_engine", () -> new SolverEngine() {
+            public int solve(Puzzle puzzle) {
+                return 1;
+            }
+
+            public long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener) {
+                if (listener != null) {
+                    listener.onSolution(solved);
+                }
+                return 1;
+            }
+
+            public int[] getSolution() {
+                return solved;
+            }
+
+            public int[] generateRandomSolution(Grid grid, SplittableRandom random) {
+                return solved;
+            }
+        });
+
+        try {
+            Puzzle puzzle = new Puzzle(grid, new int[grid.getNumCells()], "test_engine");
+
+            assertEquals(1, puzzle.getNumSolutions());
+            assertArrayEquals(solved, puzzle.getSolution());
+        } finally {
+            SolverEngines.unregister("test_engine");
+        }
+        assertThrows(IllegalArgumentException.class, () -> SolverEngines.create("test_engine"));
+        assertThrows(IllegalArgumentException.class, () -> SolverEngines.unregister(SolverEngines.BACKTRACKING));
+    }
+
+    @Test
+    public void calibrateSkipsAnEngineGivingWrongSolutions() {
+        SolverEngines.register("wrong_engine", () -> new SolverEngine() {
+            public int solve(Puzzle puzzle) {
+                return 1;
+            }
+
+            public long solve(Puzzle puzzle, long solutionLimit, SolutionListener listener) {
+                return 1;
+            }
+
+            public int[] getSolution() {
+                return new int[16];
+            }
+
+            public int[] generateRandomSolution(Grid grid, SplittableRandom random) {
+                return SolverEngines.create(SolverEngines.BACKTRACKING).generateRandomSolution(grid, random);
+            }
+        });
+        try {
+            assertNotEquals("wrong_engine", SolverEngines.calibrate(2, 2, 5));
+        } finally {
+            SolverEngines.unregister("wrong_engine");
+            SolverEngines.select(2, 2, SolverEngines.BACKTRACKING);
+        }
+    }
+
+    @Test
+    public void calibrateSelectsARegisteredEngine() {
+        try {
+            String selected = SolverEngines.calibrate(2, 2, 5);
+
+            assertTrue(SolverEngines.getNames().contains(selected));
+            assertEquals(selected, SolverEngines.getSelected(2, 2));
+        } finally {
+            SolverEngines.select(2, 2, SolverEngines.BACKTRACKING);
+        }
+    }
+
+    @Test
+    public void randomSolutionsFromEachEngineAreValid() {
+        for (String name : new String[] {SolverEngines.BACKTRACKING, SolverEngines.DANCING_LINKS}) {
+            int[] randomSolution = SolverEngines.create(name).generateRandomSolution(grid);
+            Puzzle puzzle = new Puzzle(grid, randomSolution);
+
+            assertEquals(1, puzzle.getNumSolutions());
+            assertArrayEquals(randomSolution, puzzle.getSolution());
+        }
+    }
+
+    @Test
+    public void randomSolutionsFollowTheSeed() {
+        for (String name : new String[] {SolverEngines.BACKTRACKING, SolverEngines.DANCING_LINKS}) {
+            SolverEngine engine = SolverEngines.create(name);
+            int[] randomSolution = engine.generateRandomSolution(grid, new SplittableRandom(42));
+
+            assertArrayEquals(randomSolution, engine.generateRandomSolution(grid, new SplittableRandom(42)), name);
+            assertArrayEquals(randomSolution, SolverEngines.create(name).generateRandomSolution(grid,
+                    new SplittableRandom(42)), name);
+        }
+    }
+}
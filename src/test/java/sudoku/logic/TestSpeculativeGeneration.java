@@ -0,0 +1,111 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Generating with several attempts at once should still give a puzzle of the target difficulty, and the
+losing attempts should stop soon after. Generating in bulk should never run more than its parallelism
+ahead of the listener, should never give two isomorphs, and should stop when the listener does.
+ */
+public class TestSpeculativeGeneration {
+
+    @Test
+    public void firstMatchWinsAndTheRestStop() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Puzzle puzzle = new Generator(new Grid(3, 3)).generatePuzzle(Difficulty.FIENDISH, executor, 4);
+            assertEquals(Difficulty.FIENDISH, puzzle.getDifficulty());
+            assertEquals(1, puzzle.getNumSolutions());
+        } finally {
+            executor.shutdown();
+        }
+        // the other attempts stop by the next clue they try to remove or the next puzzle they rate
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void parallelismOfOneGeneratesOnTheCallingThread() {
+        Puzzle puzzle = new Generator(new Grid(2, 3)).generatePuzzle(Difficulty.TRICKY, command -> fail(), 1);
+        assertEquals(Difficulty.TRICKY, puzzle.getDifficulty());
+    }
+
+    @Test
+    public void badParallelism() {
+        Generator generator = new Generator(new Grid(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> generator.generatePuzzle(Difficulty.EASY, Runnable::run, 0));
+    }
+
+    @Test
+    public void bulkGenerationStaysWithinParallelismOfTheListener() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicInteger numStarted = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            numStarted.incrementAndGet();
+            executor.execute(command);
+        };
+        List<Puzzle> taken = new ArrayList<>();
+        try {
+            long numTaken = new Generator(new Grid(2, 3)).generatePuzzles(Difficulty.MEDIUM, 12, countingExecutor, 3,
+                    puzzle -> {
+                        assertTrue(numStarted.get() <= taken.size() + 3);
+                        return taken.add(puzzle);
+                    });
+            assertEquals(12, numTaken);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(12, taken.size());
+        assertEquals(12, numStarted.get());
+        Set<Long> fingerprints = new HashSet<>();
+        for (Puzzle puzzle : taken) {
+            assertEquals(Difficulty.MEDIUM, puzzle.getDifficulty());
+            assertEquals(1, puzzle.getNumSolutions());
+            assertTrue(fingerprints.add(CanonicalForm.fingerprint(puzzle)));
+        }
+    }
+
+    @Test
+    public void bulkGenerationEndsWhenThePuzzlesRunOut() throws InterruptedException {
+        // there are only a few dozen different puzzles with 2x2 boxes
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+        try {
+            long numTaken = new Generator(new Grid(2, 2)).generatePuzzles(Difficulty.EASY, 1000, executor, 2,
+                    puzzle -> fingerprints.add(CanonicalForm.fingerprint(puzzle)));
+            assertTrue(numTaken > 10 && numTaken < 100);
+            assertEquals(numTaken, fingerprints.size());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void bulkGenerationStopsWhenTheListenerDoes() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger numOffered = new AtomicInteger();
+        try {
+            long numTaken = new Generator(new Grid(3, 3)).generatePuzzles(Difficulty.FIENDISH, 1000, executor, 4,
+                    puzzle -> numOffered.incrementAndGet() < 3);
+            assertEquals(2, numTaken);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(3, numOffered.get());
+    }
+}
@@ -0,0 +1,79 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+Each rating should count every cell solved against the technique which solved it, leave out what the
+pipeline leaves out, and only be timed, and added to the totals, while collecting.
+ */
+public class TestTechniqueStatistics {
+
+    private final Grid grid = new Grid(3, 3);
+    // the hidden pair test case from TestPuzzleRater3By3
+    private final Puzzle hiddenPair = new Puzzle(grid, new int[]{4, 0, 0, 0, 0, 0, 8, 0, 5, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 7, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 6, 0, 0, 0, 0, 0, 8, 0, 4, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 6, 0, 3, 0, 7, 0, 5, 0, 0, 2, 0, 0, 0, 0, 0, 1, 0, 4, 0, 0, 0, 0, 0, 0});
+
+    @Test
+    public void eachRatingsStatistics() {
+        PuzzleRater rater = new PuzzleRater();
+        assertEquals(5, rater.rate(hiddenPair));
+        TechniqueStatistics statistics = rater.getStatistics();
+
+        long placed = 0;
+        int hardest = 1;
+        for (Technique technique : Technique.values()) {
+            assertTrue(statistics.getHits(technique) <= statistics.getAttempts(technique));
+            assertEquals(0, statistics.getNanos(technique));
+            placed += statistics.getPlacements(technique);
+            if (statistics.getHits(technique) > 0) {
+                hardest = Integer.max(hardest, technique.getRating());
+            }
+        }
+        assertEquals(hiddenPair.getNumUnknowns(), placed);
+        assertEquals(5, hardest);
+        assertTrue(statistics.getEliminations(Technique.NAKED_PAIR) > 0);
+        assertTrue(statistics.getEliminations(Technique.HIDDEN_PAIR) > 0);
+        assertEquals(0, statistics.getPlacements(Technique.HIDDEN_PAIR));
+        assertEquals(0, statistics.getAttempts(Technique.HIDDEN_QUAD));
+        assertEquals(1, statistics.getRatings());
+    }
+
+    @Test
+    public void pipelineUpToNakedSets() {
+        Technique[] pipeline = Arrays.stream(Technique.values())
+                .filter(technique -> technique.getRating() <= 4)
+                .toArray(Technique[]::new);
+        PuzzleRater rater = new PuzzleRater(pipeline);
+        assertEquals(0, rater.rate(hiddenPair));
+        assertEquals(0, rater.getStatistics().getAttempts(Technique.HIDDEN_PAIR));
+        assertTrue(rater.getStatistics().getAttempts(Technique.NAKED_TRIPLE) > 0);
+    }
+
+    @Test
+    public void aggregateWhileCollecting() {
+        PuzzleRater rater = new PuzzleRater();
+        TechniqueStatistics.resetAggregate();
+        TechniqueStatistics.setCollecting(true);
+        try {
+            for (int n = 0; n < 3; n++) {
+                rater.rate(hiddenPair);
+                assertTrue(rater.getStatistics().getNanos(Technique.LAST_DIGIT_IN_A_BOX) > 0);
+            }
+        } finally {
+            TechniqueStatistics.setCollecting(false);
+        }
+        TechniqueStatistics aggregate = TechniqueStatistics.aggregate();
+        rater.rate(hiddenPair);
+
+        // any other thread rating puzzles meanwhile adds to the totals as well
+        assertTrue(aggregate.getRatings() >= 3);
+        assertTrue(aggregate.getHits(Technique.HIDDEN_PAIR)
+                >= 3 * rater.getStatistics().getHits(Technique.HIDDEN_PAIR));
+        assertTrue(aggregate.getTotalNanos() > 0);
+        assertEquals(aggregate.getRatings(), TechniqueStatistics.aggregate().getRatings());
+        assertTrue(aggregate.toString().contains("Hidden Pair"));
+    }
+}
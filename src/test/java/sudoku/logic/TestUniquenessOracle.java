@@ -0,0 +1,32 @@
+package sudoku.logic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+The oracle should keep or remove each clue exactly as solving the puzzle again without it would.
+ */
+public class TestUniquenessOracle {
+
+    @ParameterizedTest
+    @CsvSource({"2, 2", "2, 3", "2, 4", "3, 3", "2, 5"})
+    public void agreesWithSolvingAgain(int boxHeight, int boxWidth) {
+        Grid grid = new Grid(boxHeight, boxWidth);
+        int[] puzzleNums = new Solver().generateRandomSolution(grid);
+        UniquenessOracle oracle = new UniquenessOracle(grid, Arrays.copyOf(puzzleNums, puzzleNums.length), new Solver());
+
+        for (int cellIndex = 0; cellIndex < grid.getNumCells(); cellIndex++) {
+            int existingClue = puzzleNums[cellIndex];
+            puzzleNums[cellIndex] = 0;
+            boolean singleSolution = new Puzzle(grid, puzzleNums, SolverEngines.BACKTRACKING).getNumSolutions() == 1;
+            if (!singleSolution) {
+                puzzleNums[cellIndex] = existingClue;
+            }
+            assertEquals(singleSolution, oracle.removeClue(cellIndex), "cell " + cellIndex);
+        }
+    }
+}
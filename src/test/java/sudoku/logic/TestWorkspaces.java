@@ -0,0 +1,56 @@
+package sudoku.logic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/*
+Workspaces should lend the same Solver and PuzzleRater to a thread for each size of grid, and
+puzzles solved and rated with them should not share their results.
+ */
+public class TestWorkspaces {
+
+    private final Grid grid = new Grid(3, 3);
+
+    @Test
+    public void lendsTheSameSolverOnceReturned() {
+        Solver solver = Workspaces.leaseSolver(grid);
+        Workspaces.release(grid, solver);
+        Solver again = Workspaces.leaseSolver(grid);
+        try {
+            assertThat(again, sameInstance(solver));
+            // still lent, so another one is made
+            Solver another = Workspaces.leaseSolver(grid);
+            assertThat(another, not(sameInstance(solver)));
+            Workspaces.release(grid, another);
+        } finally {
+            Workspaces.release(grid, again);
+        }
+        Solver otherSize = Workspaces.leaseSolver(new Grid(2, 3));
+        Workspaces.release(new Grid(2, 3), otherSize);
+        assertThat(otherSize, not(sameInstance(solver)));
+    }
+
+    @Test
+    public void lendsTheSameRaterOnceReturned() {
+        PuzzleRater rater = Workspaces.leaseRater(grid);
+        Workspaces.release(grid, rater);
+        PuzzleRater again = Workspaces.leaseRater(grid);
+        Workspaces.release(grid, again);
+        assertThat(again, sameInstance(rater));
+    }
+
+    @Test
+    public void solutionsAreNotShared() {
+        Puzzle first = new Puzzle(grid, new int[] {0, 0, 8, 9, 0, 7, 0, 5, 0, 0, 7, 0, 0, 4, 0, 0, 1, 0, 0, 6, 0, 5, 0, 1, 0, 0, 7, 6, 3, 0, 0, 0, 0, 9, 0, 0, 0, 0, 9, 0, 0, 0, 8, 0, 0, 0, 0, 7, 4, 0, 0, 0, 3, 5, 7, 0, 0, 6, 0, 3, 0, 2, 0, 0, 4, 0, 0, 7, 0, 0, 6, 0, 0, 0, 6, 1, 0, 4, 7, 0, 0}, SolverEngines.BACKTRACKING);
+        int[] firstSolution = first.getSolution().clone();
+        int firstRating = first.getRating();
+        Puzzle second = new Puzzle(grid, new int[81], SolverEngines.BACKTRACKING);
+        second.getSolution();
+        second.getRating();
+        assertThat(first.getSolution(), equalTo(firstSolution));
+        assertThat(first.getRating(), equalTo(firstRating));
+        assertThat(second.getSolution(), not(equalTo(firstSolution)));
+    }
+}